@@ -0,0 +1,79 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load generator run by loadtest/run.sh with the java source launcher.
+ * Every connection sends its next request as soon as the last one completes; even connections fetch the first url,
+ * odd ones the second. Latencies are recorded only after the warm-up.
+ * usage: java MixedLoad.java connections warmupSeconds durationSeconds url url
+ */
+public class MixedLoad {
+
+    //Latencies kept per url; requests past this are still counted, just not sampled
+    private static final int MAX_SAMPLES = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = Integer.parseInt(args[0]);
+        long warmup = Long.parseLong(args[1]);
+        long duration = Long.parseLong(args[2]);
+        String[] urls = {args[3], args[4]};
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long[][] latencies = new long[urls.length][MAX_SAMPLES];
+        AtomicInteger[] counts = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger errors = new AtomicInteger();
+        long measureFrom = System.nanoTime() + warmup * 1_000_000_000L;
+        long end = measureFrom + duration * 1_000_000_000L;
+
+        try (ExecutorService connectionThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                int url = c % urls.length;
+                HttpRequest request = HttpRequest.newBuilder(URI.create(urls[url])).timeout(Duration.ofSeconds(60)).build();
+                connectionThreads.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (start >= measureFrom) {
+                            int sample = counts[url].getAndIncrement();
+                            if (sample < MAX_SAMPLES) {
+                                latencies[url][sample] = System.nanoTime() - start;
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        for (int url = 0; url < urls.length; url++) {
+            long[] sorted = Arrays.copyOf(latencies[url], Math.min(counts[url].get(), MAX_SAMPLES));
+            Arrays.sort(sorted);
+            System.out.printf("%s%n  %.0f req/s  p50 %.1fms  p99 %.1fms%n", urls[url], counts[url].get() / (double) duration,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99));
+        }
+        System.out.println("errors: " + errors.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) (sorted.length * p)] / 1e6;
+    }
+}
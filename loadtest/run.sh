@@ -0,0 +1,49 @@
+#!/bin/bash
+# Mixed load against one instance: half the connections download a poster, half page through keyset scroll.
+# usage: loadtest/run.sh <platform|virtual>
+# Settings are in loadtest/settings.env; results from earlier runs are in loadtest/results.txt.
+set -euo pipefail
+
+MODE=${1:?usage: loadtest/run.sh <platform|virtual>}
+case "$MODE" in
+    platform) VIRTUAL=false ;;
+    virtual) VIRTUAL=true ;;
+    *) echo "mode must be platform or virtual" >&2; exit 1 ;;
+esac
+
+cd "$(dirname "$0")/.."
+source loadtest/settings.env
+ulimit -n 65536 2>/dev/null || echo "could not raise the open file limit; $CONNECTIONS connections may not fit" >&2
+
+#1. Build, and run from the test classpath so H2 is on it
+$MVN -B -q -DskipTests test-compile
+$MVN -B -q dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/loadtest-classpath.txt
+POSTERS=$(mktemp -d)
+java -cp "target/classes:$(cat target/loadtest-classpath.txt)" com.movieflix.movieApi.MovieApiApplication \
+    --server.port="$PORT" \
+    --spring.threads.virtual.enabled="$VIRTUAL" \
+    --spring.datasource.url="$DB_URL" --spring.datasource.username="$DB_USER" --spring.datasource.password="$DB_PASSWORD" \
+    --project.poster="$POSTERS/" \
+    --project.admission.enabled="$ADMISSION" \
+    --logging.level.root=WARN > target/loadtest-app.log 2>&1 &
+APP=$!
+trap 'kill $APP 2>/dev/null; rm -rf "$POSTERS"' EXIT
+
+BASE=http://localhost:$PORT
+for i in $(seq 60); do
+    curl -s -o /dev/null "$BASE/api/v1/movie/all" && break
+    sleep 1
+done
+
+#2. Seed the catalogue
+for i in $(seq "$MOVIES"); do
+    curl -s -o /dev/null -F "file=@$POSTER" \
+        -F "movieDto={\"title\":\"T$i\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"A$i\"],\"releaseYear\":2001}" \
+        "$BASE/api/v1/movie/add-movie"
+done
+POSTER_NAME=$(curl -s "$BASE/api/v1/movie/1" | sed -n 's/.*"poster":"\([^"]*\)".*/\1/p')
+
+#3. Load
+echo "mode=$MODE connections=$CONNECTIONS warmup=${WARMUP}s duration=${DURATION}s movies=$MOVIES"
+java -Xss256k loadtest/MixedLoad.java "$CONNECTIONS" "$WARMUP" "$DURATION" \
+    "$BASE/file/$POSTER_NAME" "$BASE/api/v1/movie/allMoviesScroll?$SCROLL_QUERY"
@@ -0,0 +1,66 @@
+package com.movieflix.movieApi.admission;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that follows observed latency (AIMD): every completion under the target nudges the limit up by
+ * about one per limit's worth of requests, a completion over it cuts the limit by a tenth, at most once per target period
+ * so one slow burst is not counted a hundred times. All state is atomics.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetNanos;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong lastDecrease = new AtomicLong(Long.MIN_VALUE / 4);
+
+    AdaptiveConcurrencyLimit(int minLimit, int maxLimit, long targetNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetNanos;
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos > targetNanos) {
+            long last = lastDecrease.get();
+            if (nowNanos - last > targetNanos && lastDecrease.compareAndSet(last, nowNanos)) {
+                limit.updateAndGet(current -> Math.max(minLimit, (int) (current * DECREASE_FACTOR)));
+            }
+        } else if (ThreadLocalRandom.current().nextInt(limit.get()) == 0) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
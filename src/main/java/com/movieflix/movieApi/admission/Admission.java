@@ -0,0 +1,72 @@
+package com.movieflix.movieApi.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The verdict on one request. An admitted request holds a concurrency slot until {@link #complete()}, which may be called
+ * from whichever thread finishes the response and only counts once.
+ */
+public final class Admission {
+
+    static final Admission UNLIMITED = new Admission(null, null, 0, null, admission -> {
+    });
+
+    private final EndpointClass endpointClass;
+
+    private final HttpStatus rejectedWith;
+
+    private final long retryAfterSeconds;
+
+    private final String detail;
+
+    private final Consumer<Admission> onComplete;
+
+    private final long startedNanos = System.nanoTime();
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    Admission(EndpointClass endpointClass, HttpStatus rejectedWith, long retryAfterSeconds, String detail, Consumer<Admission> onComplete) {
+        this.endpointClass = endpointClass;
+        this.rejectedWith = rejectedWith;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.detail = detail;
+        this.onComplete = onComplete;
+    }
+
+    public boolean isRejected() {
+        return rejectedWith != null;
+    }
+
+    public HttpStatus rejectedWith() {
+        return rejectedWith;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public ProblemDetail problem(String path) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(rejectedWith, detail);
+        problem.setInstance(URI.create(path));
+        return problem;
+    }
+
+    public void complete() {
+        if (completed.compareAndSet(false, true)) {
+            onComplete.accept(this);
+        }
+    }
+
+    EndpointClass endpointClass() {
+        return endpointClass;
+    }
+
+    long startedNanos() {
+        return startedNanos;
+    }
+}
@@ -0,0 +1,143 @@
+package com.movieflix.movieApi.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Decides, before any controller runs, whether a request is worth starting. Checks run cheapest first and none takes a lock:
+ * <ol>
+ *     <li>low-priority classes are shed while the API class is close to its concurrency limit (503)</li>
+ *     <li>the client's own token bucket for the class (429)</li>
+ *     <li>the class's token bucket across all clients (429)</li>
+ *     <li>the class's adaptive concurrency limit (503)</li>
+ * </ol>
+ * Rejections carry Retry-After, so well-behaved clients back off instead of retrying into the overload.
+ */
+@Component
+public class AdmissionController {
+
+    private final AdmissionProperties properties;
+
+    private final Pattern trustedProxies;
+
+    private final Map<EndpointClass, TokenBucket> classBuckets = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, Cache<String, TokenBucket>> clientBuckets = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> concurrencyLimits = new EnumMap<>(EndpointClass.class);
+
+    private final Meter.MeterProvider<Counter> decisions;
+
+    public AdmissionController(AdmissionProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.trustedProxies = properties.trustedProxies() == null || properties.trustedProxies().isBlank()
+                ? null : Pattern.compile(properties.trustedProxies());
+        Map<EndpointClass, AdmissionProperties.Limits> classes = properties.classes() == null ? Map.of() : properties.classes();
+        classes.forEach((endpointClass, limits) -> {
+            classBuckets.put(endpointClass, new TokenBucket(limits.rate(), limits.burst()));
+            //Idle clients fall out, and the number remembered is capped, so a scan from many addresses can't grow the heap
+            clientBuckets.put(endpointClass, Caffeine.newBuilder()
+                    .maximumSize(properties.maxClients())
+                    .expireAfterAccess(Duration.ofMinutes(1))
+                    .build());
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(limits.minConcurrency(), limits.maxConcurrency(),
+                    limits.targetLatency().toNanos());
+            concurrencyLimits.put(endpointClass, limit);
+            Gauge.builder("movieflix.admission.limit", limit, AdaptiveConcurrencyLimit::limit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("class", endpointClass.name().toLowerCase())
+                    .register(registry);
+            Gauge.builder("movieflix.admission.in.flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                    .description("Admitted requests not yet completed")
+                    .tag("class", endpointClass.name().toLowerCase())
+                    .register(registry);
+        });
+        this.decisions = Counter.builder("movieflix.admission.decisions")
+                .description("Admission decisions by endpoint class and outcome")
+                .withRegistry(registry);
+    }
+
+    /**
+     * The address a request is counted against. X-Forwarded-For is read from the right and only while the hop that
+     * appended an entry is a trusted proxy, so the result is the address the last trusted proxy saw connect. Entries
+     * further left were written by the client itself; reading them would let it pick a fresh bucket every request.
+     */
+    public String clientAddress(String peer, List<String> forwardedFor) {
+        if (trustedProxies == null || forwardedFor == null) {
+            return peer;
+        }
+        List<String> hops = forwardedFor.stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(String::trim)
+                .filter(hop -> !hop.isEmpty())
+                .toList();
+        String client = peer;
+        for (int i = hops.size() - 1; i >= 0 && trustedProxies.matcher(client).matches(); i--) {
+            client = hops.get(i);
+        }
+        return client;
+    }
+
+    public Admission admit(String path, String client) {
+        EndpointClass endpointClass = properties.enabled() ? EndpointClass.of(path) : null;
+        if (endpointClass == null || !concurrencyLimits.containsKey(endpointClass)) {
+            return Admission.UNLIMITED;
+        }
+        long now = System.nanoTime();
+
+        //1. Posters and bulk reads give way first, while cheap lookups still have headroom
+        AdaptiveConcurrencyLimit api = concurrencyLimits.get(EndpointClass.API);
+        if (!endpointClass.isPriority() && api != null && api.inFlight() >= properties.shedLowPriorityAt() * api.limit()) {
+            return reject(endpointClass, "shed", HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Server is busy with higher-priority requests");
+        }
+
+        //2. Per client, then for the whole class
+        long wait = clientBuckets.get(endpointClass).get(client, key -> {
+            AdmissionProperties.Limits limits = properties.classes().get(endpointClass);
+            return new TokenBucket(limits.clientRate(), limits.clientBurst());
+        }).tryAcquire(now);
+        if (wait > 0) {
+            return reject(endpointClass, "client_rate_limited", HttpStatus.TOO_MANY_REQUESTS, wait, "Too many requests from this client");
+        }
+        wait = classBuckets.get(endpointClass).tryAcquire(now);
+        if (wait > 0) {
+            return reject(endpointClass, "rate_limited", HttpStatus.TOO_MANY_REQUESTS, wait, "Too many requests");
+        }
+
+        //3. Finally a concurrency slot, sized by how quickly recent requests completed
+        AdaptiveConcurrencyLimit limit = concurrencyLimits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            return reject(endpointClass, "overloaded", HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "Server is overloaded");
+        }
+        decisions.withTags("class", endpointClass.name().toLowerCase(), "outcome", "admitted").increment();
+        return new Admission(endpointClass, null, 0, null, this::release);
+    }
+
+    private void release(Admission admission) {
+        long now = System.nanoTime();
+        concurrencyLimits.get(admission.endpointClass()).release(now - admission.startedNanos(), now);
+    }
+
+    private Admission reject(EndpointClass endpointClass, String outcome, HttpStatus status, long waitNanos, String detail) {
+        decisions.withTags("class", endpointClass.name().toLowerCase(), "outcome", outcome).increment();
+        //Retry-After is whole seconds; never tell a client to retry immediately
+        long retryAfter = Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+        return new Admission(endpointClass, status, retryAfter, detail, admission -> {
+        });
+    }
+}
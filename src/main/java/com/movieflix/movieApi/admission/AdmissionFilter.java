@@ -0,0 +1,88 @@
+package com.movieflix.movieApi.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Runs first, so a rejected request costs a header write rather than a multipart parse, a connection or a file read.
+ * Async requests (exports, streamed posters) keep their slot until the response is actually complete. A poster handed
+ * to sendfile gives its slot back when the servlet returns, before Tomcat's poller has sent the bytes: Tomcat has no
+ * callback for the end of a sendfile, and the copy needs no request thread, which is what the limit protects.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final AdmissionController admissionController;
+
+    private final ObjectMapper objectMapper;
+
+    public AdmissionFilter(AdmissionController admissionController, ObjectMapper objectMapper) {
+        this.admissionController = admissionController;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        //Decoded and without ;parameters, as handler mapping sees it, so /fil%65/x.png is still a poster download
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        String client = admissionController.clientAddress(request.getRemoteAddr(), Collections.list(request.getHeaders(FORWARDED_FOR)));
+        Admission admission = admissionController.admit(path, client);
+        if (admission.isRejected()) {
+            response.setStatus(admission.rejectedWith().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), admission.problem(path));
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        admission.complete();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        admission.complete();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        admission.complete();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                admission.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.movieflix.movieApi.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * project.admission: limits per endpoint class. Rates are requests per second; the client limits apply per client
+ * address, which is taken from X-Forwarded-For only when the peer matches trustedProxies.
+ */
+@ConfigurationProperties("project.admission")
+public record AdmissionProperties(boolean enabled, double shedLowPriorityAt, int maxClients, String trustedProxies,
+                                  Map<EndpointClass, Limits> classes) {
+
+    public record Limits(double rate, int burst, double clientRate, int clientBurst,
+                         int minConcurrency, int maxConcurrency, Duration targetLatency) {
+
+        //The adaptive limit grows with probability 1/limit, so it can never be allowed to reach 0
+        public Limits {
+            if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+                throw new IllegalArgumentException("Concurrency limits need 1 <= min-concurrency <= max-concurrency, got "
+                        + minConcurrency + " and " + maxConcurrency);
+            }
+        }
+    }
+}
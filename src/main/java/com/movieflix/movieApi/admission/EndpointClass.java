@@ -0,0 +1,40 @@
+package com.movieflix.movieApi.admission;
+
+/**
+ * What a request costs the server, which decides the limits it is admitted under.
+ * API lookups are cheap and latency-sensitive, so the other classes are shed first when API traffic is under pressure.
+ */
+public enum EndpointClass {
+    //Single-movie reads and writes, pages, search, suggest and browse
+    API(true),
+    //Whole-catalogue reads and bulk writes: few requests, each holding a connection or a thread for a long time
+    BULK(false),
+    //Poster downloads and uploads, bound by disk and bandwidth
+    POSTER(false);
+
+    private final boolean priority;
+
+    EndpointClass(boolean priority) {
+        this.priority = priority;
+    }
+
+    public boolean isPriority() {
+        return priority;
+    }
+
+    /**
+     * The class of a request path, or null for paths that are never limited, such as actuator scrapes.
+     */
+    public static EndpointClass of(String path) {
+        if (path.startsWith("/file/")) {
+            return POSTER;
+        }
+        if (path.equals("/api/v1/movie/all") || path.startsWith("/api/v1/movie/bulk-")) {
+            return BULK;
+        }
+        if (path.startsWith("/api/")) {
+            return API;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.movieflix.movieApi.admission;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * WebFlux twin of {@link AdmissionFilter}; the slot is given back when the response completes, errors or is cancelled.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final AdmissionController admissionController;
+
+    private final ObjectMapper objectMapper;
+
+    public ReactiveAdmissionFilter(AdmissionController admissionController, ObjectMapper objectMapper) {
+        this.admissionController = admissionController;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = lookupPath(exchange.getRequest());
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        String client = admissionController.clientAddress(remote == null ? "unknown" : remote.getHostString(),
+                exchange.getRequest().getHeaders().get(FORWARDED_FOR));
+        Admission admission = admissionController.admit(path, client);
+        if (admission.isRejected()) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(admission.rejectedWith());
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+            response.getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(admission.problem(path));
+                return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+            } catch (JsonProcessingException ex) {
+                return response.setComplete();
+            }
+        }
+        return chain.filter(exchange).doFinally(signal -> admission.complete());
+    }
+
+    //Decoded and without ;parameters, as handler mapping sees it, so /fil%65/x.png is still a poster download
+    static String lookupPath(ServerHttpRequest request) {
+        StringBuilder path = new StringBuilder();
+        for (PathContainer.Element element : request.getPath().pathWithinApplication().elements()) {
+            path.append(element instanceof PathContainer.PathSegment segment ? segment.valueToMatch() : element.value());
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.movieflix.movieApi.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket in its GCRA form: the whole state is one "theoretical arrival time", advanced with a CAS,
+ * so admission takes no lock and no refill thread. A request fits if the bucket would be no more than
+ * {@code burst} requests ahead of the steady rate after taking it.
+ */
+final class TokenBucket {
+
+    private final long emissionNanos;
+
+    private final long toleranceNanos;
+
+    //nanoTime may be negative, so start far enough back that the first request always fits
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE / 4);
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this.emissionNanos = Math.max(1, (long) (1_000_000_000d / ratePerSecond));
+        this.toleranceNanos = emissionNanos * Math.max(1, burst);
+    }
+
+    /**
+     * Takes a token, returning 0, or returns how many nanoseconds until one is available and takes nothing.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + emissionNanos;
+            long allowedAt = next - toleranceNanos;
+            if (allowedAt > nowNanos) {
+                return allowedAt - nowNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.movieflix.movieApi.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Poster bytes plus everything needed to answer a request for them.
+ * {@code content} is null when the file was too large to be cached and has to be served from {@code file}.
+ */
+public record CachedPoster(Path file, ByteBuffer content, long length, long lastModified, String etag, String contentType) {
+}
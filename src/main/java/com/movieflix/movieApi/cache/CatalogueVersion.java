@@ -0,0 +1,80 @@
+package com.movieflix.movieApi.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter that moves on with every change to the catalogue, used as the entity tag of the listing endpoints.
+ * A client holding the current tag has the current page, so a conditional request is answered with 304 before the
+ * service, the caches or the database are asked anything.
+ * The tag is only meaningful on the instance that issued it: it carries a per-process epoch, so one from another
+ * instance or from before a restart never matches and the client just gets the full page.
+ */
+@Component
+public class CatalogueVersion {
+
+    //Caches whose keys start with the version: the listings, and the per-movie cache
+    private static final List<String> VERSIONED_CACHES = List.of("movies", "movieLists", "moviePages");
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final CacheManager cacheManager;
+
+    private final TaskScheduler taskScheduler;
+
+    @Value("${project.listing.max-age:10m}")
+    private Duration maxAge;
+
+    public CatalogueVersion(CacheManager cacheManager, TaskScheduler taskScheduler) {
+        this.cacheManager = cacheManager;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Writes made through other instances never reach this counter, so it also moves on a timer. The interval is no
+     * longer than the listing caches' expiry, so a tag is never trusted for longer than a cached page would be.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleExpiry() {
+        taskScheduler.scheduleWithFixedDelay(this::advance, Instant.now().plus(maxAge), maxAge);
+    }
+
+    /**
+     * Called once a change is visible to readers. Listing and movie cache keys start with {@link #current()}, so a
+     * page or movie read before the change, even one cached after this call, is never found under the new version.
+     * The caches are emptied only so the old entries don't wait out their expiry.
+     */
+    public void advance() {
+        version.incrementAndGet();
+        for (String name : VERSIONED_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Weak, because the same page goes out gzipped or not; a strong tag would also stop Tomcat compressing it.
+     */
+    public String etag() {
+        return "W/\"" + epoch + "-" + version.get() + "\"";
+    }
+}
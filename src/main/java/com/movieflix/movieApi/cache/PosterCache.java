@@ -0,0 +1,158 @@
+package com.movieflix.movieApi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.movieflix.movieApi.dto.PosterCacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte-budgeted cache of poster contents, keyed by filename (or size/filename for variants).
+ * Contents live in direct buffers so they stay out of the heap; Caffeine's W-TinyLFU policy decides what stays resident.
+ */
+@Component
+public class PosterCache implements MeterBinder {
+
+    private final Cache<String, CachedPoster> cache;
+
+    //Held so peek can count its hits; misses are only ever counted by load
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    public PosterCache(@Value("${project.poster-cache.max-size:64MB}") DataSize maxSize,
+                       @Value("${project.poster-cache.max-entry-size:2MB}") DataSize maxEntrySize) {
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String filename, CachedPoster poster) -> (int) poster.length())
+                .recordStats(() -> statsCounter)
+                .build();
+    }
+
+    /**
+     * Returns the poster if it is resident, without loading anything, for callers that must not block.
+     * A hit is counted; a miss is not, since the caller goes on to {@link #load}, which counts it.
+     */
+    public CachedPoster peek(String filename) {
+        //The map view reads without recording stats, but still tells the eviction policy the poster was used
+        CachedPoster cached = cache.asMap().get(filename);
+        if (cached != null) {
+            statsCounter.recordHits(1);
+        }
+        return cached;
+    }
+
+    /**
+     * Returns the poster, reading it into the cache when it fits. This is the one lookup a request makes, so it is
+     * counted once: as a hit, or as a miss when the poster had to be read, including a poster too large to keep.
+     * {@code file} is only resolved on a miss. Loading inside the cache means an invalidate racing with the load can
+     * never leave stale bytes behind.
+     */
+    public CachedPoster load(String filename, PosterFile file) throws IOException {
+        Path[] resolved = new Path[1];
+        try {
+            CachedPoster cached = cache.get(filename, key -> read(resolved[0] = resolve(file)));
+            if (cached != null) {
+                return cached;
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return describe(resolved[0], null, Files.size(resolved[0]));
+    }
+
+    public void invalidate(String filename) {
+        cache.invalidate(filename);
+    }
+
+    //Same meters and tags Boot registers for the movie caches, plus how much of the byte budget is in use
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "posters", "cache.manager", "posterCache", "name", "posters");
+        Gauge.builder("movieflix.poster.cache.resident", this, posterCache -> posterCache.stats().residentBytes())
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("movieflix.poster.cache.capacity", this, posterCache -> maxBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public PosterCacheStats stats() {
+        CacheStats stats = cache.stats();
+        long residentBytes = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new PosterCacheStats(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(),
+                residentBytes, maxBytes, cache.estimatedSize());
+    }
+
+    private Path resolve(PosterFile file) {
+        try {
+            return file.resolve();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private CachedPoster read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxEntryBytes) {
+                return null;
+            }
+            ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                //keep reading until the buffer is full
+            }
+            content.flip();
+            return describe(file, content.asReadOnlyBuffer(), content.limit());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private CachedPoster describe(Path file, ByteBuffer content, long length) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+        return new CachedPoster(file, content, length, lastModified, etag, detectContentType(file));
+    }
+
+    private String detectContentType(Path file) throws IOException {
+        MediaType mediaType = MediaTypeFactory.getMediaType(file.getFileName().toString()).orElse(null);
+        if (mediaType != null) {
+            return mediaType.toString();
+        }
+        String probed = Files.probeContentType(file);
+        return probed != null ? probed : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    /**
+     * Where a poster is on disk, looked up only when the cache doesn't already hold it.
+     */
+    @FunctionalInterface
+    public interface PosterFile {
+        Path resolve() throws IOException;
+    }
+}
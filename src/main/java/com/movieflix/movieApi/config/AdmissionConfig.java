@@ -0,0 +1,10 @@
+package com.movieflix.movieApi.config;
+
+import com.movieflix.movieApi.admission.AdmissionProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+}
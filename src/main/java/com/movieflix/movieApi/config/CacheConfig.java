@@ -0,0 +1,30 @@
+package com.movieflix.movieApi.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.movieflix.movieApi.dto.MoviePageResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+
+@Configuration
+public class CacheConfig {
+
+    //spring.cache.caffeine.spec suits the per-movie cache; listings hold whole pages or the whole catalogue per entry,
+    //so they get their own specs, with pages weighed by the movies they carry rather than counted
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> listingCaches(@Value("${project.cache.movie-pages-spec}") String moviePagesSpec,
+                                                                       @Value("${project.cache.movie-lists-spec}") String movieListsSpec) {
+        return cacheManager -> {
+            cacheManager.registerCustomCache("moviePages", Caffeine.from(moviePagesSpec)
+                    .weigher((Object key, Object page) -> Math.max(1, ((MoviePageResponse) page).movieDtos().size()))
+                    .build());
+            cacheManager.registerCustomCache("movieLists", Caffeine.from(movieListsSpec)
+                    .weigher((Object key, Object movies) -> Math.max(1, ((Collection<?>) movies).size()))
+                    .build());
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.movieflix.movieApi.config;
+
+import com.movieflix.movieApi.metrics.SqlStatementMetrics;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    //Hibernate hands every statement it prepares to the inspector, which only counts it
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementMetricsCustomizer(SqlStatementMetrics sqlStatementMetrics) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementMetrics);
+    }
+}
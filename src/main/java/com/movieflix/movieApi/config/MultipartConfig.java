@@ -0,0 +1,50 @@
+package com.movieflix.movieApi.config;
+
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MultipartConfig {
+
+    //Replaces Boot's own element for the main dispatcher: a part may be as large as a poster upload, and the whole
+    //request as large as that plus the rest of the form (the movie JSON, part headers and boundaries), so the two
+    //limits can't drift apart when project.poster-upload.max-size changes
+    @Bean
+    public MultipartConfigElement multipartConfigElement(MultipartProperties multipart,
+                                                         @Value("${project.poster-upload.max-size}") DataSize maxPosterSize,
+                                                         @Value("${project.poster-upload.form-overhead}") DataSize formOverhead) {
+        return new MultipartConfigElement(
+                multipart.getLocation(),
+                maxPosterSize.toBytes(),
+                maxPosterSize.toBytes() + formOverhead.toBytes(),
+                (int) multipart.getFileSizeThreshold().toBytes());
+    }
+
+    //Multipart limits belong to a servlet, not to a path, so bulk ingest gets a dispatcher of its own.
+    //It shares the application context, controllers and filters with the main one; only its upload limit differs,
+    //which leaves every other endpoint on the element above.
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> bulkIngestServlet(WebApplicationContext context,
+                                                                        MultipartProperties multipart,
+                                                                        @Value("${project.bulk.max-upload-size}") DataSize maxUploadSize) {
+        ServletRegistrationBean<DispatcherServlet> registration =
+                new ServletRegistrationBean<>(new DispatcherServlet(context), "/api/v1/movie/bulk-add");
+        registration.setName("bulkIngestServlet");
+        registration.setLoadOnStartup(1);
+        registration.setMultipartConfig(new MultipartConfigElement(
+                multipart.getLocation(),
+                maxUploadSize.toBytes(),
+                maxUploadSize.toBytes(),
+                (int) multipart.getFileSizeThreshold().toBytes()));
+        return registration;
+    }
+}
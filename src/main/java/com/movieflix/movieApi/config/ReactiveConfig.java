@@ -0,0 +1,20 @@
+package com.movieflix.movieApi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    //JPA and file I/O block, so the reactive controllers hand them to this pool and keep the event loop free.
+    //Waiting requests queue here without holding a thread; only the calls actually running do.
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${project.reactive.blocking-threads:32}") int threads) {
+        return Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "blocking");
+    }
+}
@@ -1,41 +1,221 @@
 package com.movieflix.movieApi.controllers;
 
 
+import com.movieflix.movieApi.cache.CachedPoster;
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.dto.PosterCacheStats;
+import com.movieflix.movieApi.dto.PosterVariantInfo;
+import com.movieflix.movieApi.metrics.PosterMetrics;
 import com.movieflix.movieApi.service.FileService;
+import com.movieflix.movieApi.service.PosterVariantService;
+import com.movieflix.movieApi.utils.PosterFormats;
+import com.movieflix.movieApi.utils.PosterSize;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/file/")
 public class FileController {
 
+    //Request attributes Tomcat reads to hand the body over to sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final FileService fileService;
 
-    public FileController(FileService fileService) {
+    private final PosterCache posterCache;
+
+    private final PosterVariantService posterVariantService;
+
+    private final PosterMetrics posterMetrics;
+
+    public FileController(FileService fileService, PosterCache posterCache, PosterVariantService posterVariantService,
+                          PosterMetrics posterMetrics) {
         this.fileService = fileService;
+        this.posterCache = posterCache;
+        this.posterVariantService = posterVariantService;
+        this.posterMetrics = posterMetrics;
     }
 
     @Value("${project.poster}")
     private String path;
 
-    @PostMapping("/upload")
-    public ResponseEntity<String>uploadFileHandler(@RequestPart MultipartFile file) throws IOException{
-        String uploadedFileName= fileService.uploadFile(path,file);
+    @Value("${project.poster-max-age:3600}")
+    private long posterMaxAge;
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String>uploadFileHandler(@RequestPart MultipartFile file, @RequestParam(required = false) String checksum) throws IOException{
+        String uploadedFileName= fileService.uploadFile(path,file,checksum);
+        //No movie references a standalone upload, so there is nothing to keep it pinned for
+        fileService.unpinFile(uploadedFileName);
+        return ResponseEntity.ok("File uploaded: "+uploadedFileName);
+    }
+
+    //Raw body upload: bytes go from the socket straight into the poster store, with no multipart spool in between
+    @PostMapping(value = "/upload", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<String>uploadStreamHandler(@RequestParam String filename, @RequestParam(required = false) String checksum,
+                                                     HttpServletRequest request) throws IOException{
+        String uploadedFileName= fileService.storeFile(path,filename,request.getInputStream(),checksum);
+        fileService.unpinFile(uploadedFileName);
         return ResponseEntity.ok("File uploaded: "+uploadedFileName);
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<PosterCacheStats> posterCacheStatsHandler(){
+        return ResponseEntity.ok(posterCache.stats());
+    }
+
+    @GetMapping("/{filename}/variants")
+    public ResponseEntity<List<PosterVariantInfo>> posterVariantsHandler(@PathVariable String filename) throws IOException{
+        fileService.getResourcePath(path,filename);
+        return ResponseEntity.ok(posterVariantService.getVariants(path,filename));
+    }
+
     @GetMapping("/{filename}")
-    public void serviceFileHandler(@PathVariable String filename, HttpServletResponse response) throws IOException{
-        InputStream resourceFile=fileService.getResourceFile(path,filename);
-        response.setContentType((MediaType.IMAGE_PNG_VALUE));
-        StreamUtils.copy(resourceFile,response.getOutputStream());
+    public void serviceFileHandler(@PathVariable String filename, @RequestParam(required = false) String size,
+                                   HttpServletRequest request, HttpServletResponse response) throws IOException{
+        long started=System.nanoTime();
+        //Hot posters are answered from memory without touching the disk at all
+        CachedPoster poster=resolvePoster(filename,size,request,response);
+        long length=poster.length();
+        long lastModified=poster.lastModified();
+        String etag=poster.etag();
+
+        //1. Validators and caching headers go on every response, including 304s
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(Duration.ofSeconds(posterMaxAge)).cachePublic().getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if(new ServletWebRequest(request,response).checkNotModified(etag,lastModified)){
+            return;
+        }
+
+        //2. Work out which bytes to send
+        long start=0;
+        long end=length-1;
+        String rangeHeader=request.getHeader(HttpHeaders.RANGE);
+        if(rangeHeader!=null && isRangeApplicable(request,etag)){
+            List<HttpRange> ranges=parseRanges(rangeHeader);
+            //Multipart byteranges are not worth the complexity for posters, so those get the full file
+            if(ranges.size()==1){
+                start=ranges.get(0).getRangeStart(length);
+                end=ranges.get(0).getRangeEnd(length);
+                //Only a well-formed range that misses the file entirely is refused
+                if(start>=length || start>end){
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */"+length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes "+start+"-"+end+"/"+length);
+            }
+        }
+
+        response.setContentType(poster.contentType());
+        response.setContentLengthLong(end-start+1);
+        if(HttpMethod.HEAD.matches(request.getMethod())){
+            return;
+        }
+
+        //3. Cached posters are written from their buffer, the rest go through sendfile() or a channel transfer
+        if(poster.content()!=null){
+            ByteBuffer region=poster.content().duplicate();
+            region.position((int)start).limit((int)end+1);
+            WritableByteChannel out=Channels.newChannel(response.getOutputStream());
+            while(region.hasRemaining()){
+                out.write(region);
+            }
+            posterMetrics.served("memory",end-start+1,started);
+            return;
+        }
+        Path file=poster.file();
+        if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))){
+            request.setAttribute(SENDFILE_FILENAME,file.toString());
+            request.setAttribute(SENDFILE_START,start);
+            request.setAttribute(SENDFILE_END,end+1);
+            //Timed up to the hand-off; the copy itself happens after this method returns, and after the admission slot is released
+            posterMetrics.served("sendfile",end-start+1,started);
+            return;
+        }
+        try(FileChannel channel=FileChannel.open(file, StandardOpenOption.READ)){
+            WritableByteChannel out=Channels.newChannel(response.getOutputStream());
+            long position=start;
+            long remaining=end-start+1;
+            while(remaining>0){
+                long transferred=channel.transferTo(position,remaining,out);
+                if(transferred<=0){
+                    break;
+                }
+                position+=transferred;
+                remaining-=transferred;
+            }
+        }
+        posterMetrics.served("file",end-start+1,started);
+    }
+
+    private CachedPoster resolvePoster(String filename, String size, HttpServletRequest request, HttpServletResponse response) throws IOException{
+        if(size!=null){
+            //Variants are JPEG; Accept picks between that and the original's format, and a variant not rendered yet means the original
+            PosterSize posterSize=PosterSize.fromParam(size);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if(PosterFormats.prefersVariant(accept(request),filename)){
+                Path original=fileService.getResourcePath(path,filename);
+                Path variant=posterVariantService.getVariantPath(path,original.getFileName().toString(),posterSize);
+                if(variant!=null){
+                    return posterCache.load(posterSize.cacheKey(filename),()->variant);
+                }
+            }
+        }
+        //The file is only resolved, and the disk only touched, on a miss
+        return posterCache.load(filename,()->fileService.getResourcePath(path,filename));
+    }
+
+    //A missing or unparseable Accept takes anything
+    private List<MediaType> accept(HttpServletRequest request){
+        try{
+            return MediaType.parseMediaTypes(request.getHeader(HttpHeaders.ACCEPT));
+        }catch (InvalidMediaTypeException ex){
+            return List.of();
+        }
+    }
+
+    //A Range that doesn't parse (bad syntax, units other than bytes, too many ranges) is ignored, not refused (RFC 9110 14.2)
+    private List<HttpRange> parseRanges(String rangeHeader){
+        try{
+            return HttpRange.parseRanges(rangeHeader);
+        }catch (IllegalArgumentException ex){
+            return List.of();
+        }
+    }
+
+    //If-Range needs a strong match: a date only has second precision, so it is treated as weak and the full file is sent
+    private boolean isRangeApplicable(HttpServletRequest request, String etag){
+        String ifRange=request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange==null || (ifRange.startsWith("\"") && ifRange.equals(etag));
     }
 }
@@ -1,57 +1,120 @@
 package com.movieflix.movieApi.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.BulkIngestResponse;
+import com.movieflix.movieApi.dto.BulkMutationResponse;
+import com.movieflix.movieApi.dto.FacetFilter;
 import com.movieflix.movieApi.dto.MovieDto;
-import com.movieflix.movieApi.dto.MoviePageResponse;
+import com.movieflix.movieApi.dto.MovieScrollResponse;
+import com.movieflix.movieApi.dto.MovieSearchResponse;
+import com.movieflix.movieApi.dto.SuggesterStats;
+import com.movieflix.movieApi.dto.Suggestion;
+import com.movieflix.movieApi.dto.Views;
 import com.movieflix.movieApi.exceptions.EmptyFileException;
+import com.movieflix.movieApi.mappers.MovieMapper;
 import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.search.MovieSuggester;
+import com.movieflix.movieApi.service.BulkMovieService;
 import com.movieflix.movieApi.service.MovieService;
 import com.movieflix.movieApi.utils.AppConstants;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
 import org.apache.coyote.Response;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1/movie")
 public class MovieController {
     private final MovieService movieService;
 
-    public MovieController(MovieService movieService) {
+    private final BulkMovieService bulkMovieService;
+
+    private final MovieSuggester movieSuggester;
+
+    private final MovieMapper movieMapper;
+
+    private final CatalogueVersion catalogueVersion;
+
+    public MovieController(MovieService movieService, BulkMovieService bulkMovieService, MovieSuggester movieSuggester, MovieMapper movieMapper,
+                           CatalogueVersion catalogueVersion) {
         this.movieService = movieService;
+        this.bulkMovieService = bulkMovieService;
+        this.movieSuggester = movieSuggester;
+        this.movieMapper = movieMapper;
+        this.catalogueVersion = catalogueVersion;
     }
 
     @PostMapping("/add-movie")
-    public ResponseEntity<MovieDto> addMovieHandler(@RequestPart MultipartFile file, @RequestPart String movieDto) throws IOException, EmptyFileException {
+    public ResponseEntity<MovieDto> addMovieHandler(@RequestPart MultipartFile file, @RequestPart String movieDto,
+                                                    @RequestParam(required = false) String checksum) throws IOException, EmptyFileException {
         if(file.isEmpty()){
             throw new EmptyFileException("File is empty! Please send another file.");
         }
-        MovieDto dto=convertToMovieDto(movieDto);
-        return new ResponseEntity<>(movieService.addMovie(dto,file), HttpStatus.CREATED);
+        MovieDto dto=movieMapper.readDto(movieDto);
+        return new ResponseEntity<>(movieService.addMovie(dto,file,checksum), HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk-add")
+    public ResponseEntity<BulkIngestResponse> addMoviesHandler(@RequestPart MultipartFile manifest, @RequestPart MultipartFile posters) throws IOException {
+        return ResponseEntity.ok(bulkMovieService.addMovies(manifest,posters));
+    }
 
     @GetMapping("/{movieId}")
     public ResponseEntity<MovieDto> getMovieHandler(@PathVariable Integer movieId) {
-        return ResponseEntity.ok(movieService.getMovie(movieId));
+        MovieDto movieDto=movieService.getMovie(movieId);
+        //Counted here rather than in the service so cache hits are counted too
+        movieSuggester.recordView(movieId);
+        return ResponseEntity.ok(movieDto);
     }
 
+    //Listings carry the catalogue version as their ETag; a client that still has it gets a 304 without the service being called
     @GetMapping("/all")
-    public ResponseEntity<List<MovieDto>> getAllMovieHandler(){
-        return ResponseEntity.ok(movieService.getAllMovies());
+    public ResponseEntity<MappingJacksonValue> getAllMovieHandler(@RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                  WebRequest request){
+        return listing(request,view,movieService::getAllMovies);
+    }
+
+    //Same catalogue as /all, written one JSON object per line while rows are still being read
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllMoviesHandler(){
+        StreamingResponseBody body=out->{
+            try(SequenceWriter writer=movieMapper.lineWriter(out)){
+                movieService.exportAllMovies(dto->{
+                    try{
+                        writer.write(dto);
+                    }catch (IOException ex){
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PutMapping("/update/{movieId}")
-    public ResponseEntity<MovieDto> updateMovieHandler(@PathVariable Integer movieId,@RequestPart MultipartFile file, @RequestPart String movieDtoObj) throws IOException {
+    public ResponseEntity<MovieDto> updateMovieHandler(@PathVariable Integer movieId,@RequestPart MultipartFile file, @RequestPart String movieDtoObj,
+                                                       @RequestParam(required = false) String checksum) throws IOException {
         if(file.isEmpty())file=null;
 
-        MovieDto movieDto=convertToMovieDto(movieDtoObj);
-        return ResponseEntity.ok(movieService.updateMovie(movieId,movieDto,file));
+        MovieDto movieDto=movieMapper.readDto(movieDtoObj);
+        return ResponseEntity.ok(movieService.updateMovie(movieId,movieDto,file,checksum));
     }
 
     @DeleteMapping("/delete/{movieId}")
@@ -59,23 +122,86 @@ public class MovieController {
         return ResponseEntity.ok(movieService.deleteMovie(movieId));
     }
 
+    //Many movies per call, one transaction per call, with a status for each movie
+    @PutMapping("/bulk-update")
+    public ResponseEntity<BulkMutationResponse> updateMoviesHandler(@RequestBody List<MovieDto> movieDtos) {
+        return ResponseEntity.ok(bulkMovieService.updateMovies(movieDtos));
+    }
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkMutationResponse> deleteMoviesHandler(@RequestBody List<Integer> movieIds) throws IOException {
+        return ResponseEntity.ok(bulkMovieService.deleteMovies(movieIds));
+    }
+
     @GetMapping("/allMoviesPage")
-    public ResponseEntity<MoviePageResponse>getMoviesWithPagination(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) Integer pageNumber,
-                                                                    @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) Integer pageSize){
-        return ResponseEntity.ok(movieService.getAllMoviesWithPagination(pageNumber,pageSize));
+    public ResponseEntity<MappingJacksonValue>getMoviesWithPagination(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                      @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                      @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                      WebRequest request){
+        return listing(request,view,()->movieService.getAllMoviesWithPagination(pageNumber,pageSize));
     }
 
 
     @GetMapping("/allMoviesPageSort")
-    public ResponseEntity<MoviePageResponse>getMoviesWithPaginationAndSorting(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) Integer pageNumber,
-                                                                              @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) Integer pageSize,
-                                                                              @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
-                                                                              @RequestParam(defaultValue = AppConstants.SORT_DIR, required = false) String dir){
-        return ResponseEntity.ok(movieService.getAllMoviesWithPagination(pageNumber,pageSize,sortBy,dir));
+    public ResponseEntity<MappingJacksonValue>getMoviesWithPaginationAndSorting(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                                @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                                @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+                                                                                @RequestParam(defaultValue = AppConstants.SORT_DIR, required = false) String dir,
+                                                                                @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                                WebRequest request){
+        return listing(request,view,()->movieService.getAllMoviesWithPagination(pageNumber,pageSize,sortBy,dir));
     }
 
-    private MovieDto convertToMovieDto(String movieDtoObj) throws JsonProcessingException {
-        ObjectMapper objectMapper=new ObjectMapper();
-        return objectMapper.readValue(movieDtoObj,MovieDto.class);
+    @GetMapping("/search")
+    public ResponseEntity<MovieSearchResponse> searchMoviesHandler(@RequestParam String q,
+                                                                   @RequestParam(defaultValue = AppConstants.SEARCH_LIMIT, required = false) Integer limit){
+        return ResponseEntity.ok(movieService.searchMovies(q,limit));
+    }
+
+    //Facet counts and a filtered listing from the in-memory bitmaps; only the page's movies are loaded
+    @GetMapping("/browse")
+    public ResponseEntity<MappingJacksonValue> browseMoviesHandler(@RequestParam(required = false) Integer yearFrom,
+                                                                    @RequestParam(required = false) Integer yearTo,
+                                                                    @RequestParam(required = false) String studio,
+                                                                    @RequestParam(required = false) String director,
+                                                                    @RequestParam(required = false) String castMember,
+                                                                    @RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                    @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                    @RequestParam(defaultValue = AppConstants.FACET_LIMIT, required = false) @Min(0) @Max(AppConstants.MAX_FACET_LIMIT) Integer facetLimit,
+                                                                    @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                    WebRequest request){
+        FacetFilter filter=new FacetFilter(yearFrom,yearTo,studio,director,castMember);
+        return listing(request,view,()->movieService.browseMovies(filter,pageNumber,pageSize,facetLimit));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggestHandler(@RequestParam String prefix,
+                                                           @RequestParam(defaultValue = AppConstants.SUGGEST_LIMIT, required = false) @Positive @Max(AppConstants.MAX_SUGGEST_LIMIT) Integer limit){
+        return ResponseEntity.ok(movieSuggester.suggest(prefix,limit));
+    }
+
+    @GetMapping("/suggest/stats")
+    public ResponseEntity<SuggesterStats> suggesterStatsHandler(){
+        return ResponseEntity.ok(movieSuggester.stats());
+    }
+
+    @GetMapping("/allMoviesScroll")
+    public ResponseEntity<MovieScrollResponse>getMoviesWithScroll(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                  @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+                                                                  @RequestParam(defaultValue = AppConstants.SORT_DIR, required = false) String dir,
+                                                                  @RequestParam(defaultValue = "false", required = false) boolean withTotal){
+        return ResponseEntity.ok(movieService.getAllMoviesWithScroll(cursor,pageSize,sortBy,dir,withTotal));
+    }
+
+    //no-cache: clients may keep the listing but must revalidate it, which costs them a 304 at most
+    private ResponseEntity<MappingJacksonValue> listing(WebRequest request, String view, Supplier<Object> read){
+        String etag=catalogueVersion.etag();
+        if(request.checkNotModified(etag)){
+            return null;
+        }
+        MappingJacksonValue value=new MappingJacksonValue(read.get());
+        value.setSerializationView(Views.of(view));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(value);
     }
 }
@@ -0,0 +1,226 @@
+package com.movieflix.movieApi.controllers;
+
+import com.movieflix.movieApi.cache.CachedPoster;
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.dto.PosterCacheStats;
+import com.movieflix.movieApi.dto.PosterVariantInfo;
+import com.movieflix.movieApi.metrics.PosterMetrics;
+import com.movieflix.movieApi.service.FileService;
+import com.movieflix.movieApi.service.PosterVariantService;
+import com.movieflix.movieApi.utils.DataBufferInputStream;
+import com.movieflix.movieApi.utils.PosterFormats;
+import com.movieflix.movieApi.utils.PosterSize;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * WebFlux twin of {@link FileController}. Posters that are not cached are read with an AsynchronousFileChannel,
+ * one buffer at a time as the client drains them, so no thread waits on either the disk or the socket.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/file/")
+public class ReactiveFileController {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final int UPLOAD_DEMAND = 16;
+
+    private final FileService fileService;
+
+    private final PosterCache posterCache;
+
+    private final PosterVariantService posterVariantService;
+
+    private final PosterMetrics posterMetrics;
+
+    private final Scheduler blockingScheduler;
+
+    public ReactiveFileController(FileService fileService, PosterCache posterCache, PosterVariantService posterVariantService,
+                                  PosterMetrics posterMetrics, @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
+        this.fileService = fileService;
+        this.posterCache = posterCache;
+        this.posterVariantService = posterVariantService;
+        this.posterMetrics = posterMetrics;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @Value("${project.poster}")
+    private String path;
+
+    @Value("${project.poster-max-age:3600}")
+    private long posterMaxAge;
+
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<String>> uploadFileHandler(@RequestPart FilePart file, @RequestParam(required = false) String checksum){
+        return store(file.filename(),file.content(),checksum);
+    }
+
+    @PostMapping(value = "/upload", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public Mono<ResponseEntity<String>> uploadStreamHandler(@RequestParam String filename, @RequestParam(required = false) String checksum,
+                                                            @RequestBody Flux<DataBuffer> body){
+        return store(filename,body,checksum);
+    }
+
+    @GetMapping("/cache/stats")
+    public Mono<ResponseEntity<PosterCacheStats>> posterCacheStatsHandler(){
+        return Mono.fromSupplier(()->ResponseEntity.ok(posterCache.stats()));
+    }
+
+    @GetMapping("/{filename}/variants")
+    public Mono<ResponseEntity<List<PosterVariantInfo>>> posterVariantsHandler(@PathVariable String filename){
+        return blocking(()->{
+            fileService.getResourcePath(path,filename);
+            return ResponseEntity.ok(posterVariantService.getVariants(path,filename));
+        });
+    }
+
+    @GetMapping("/{filename}")
+    public Mono<Void> serviceFileHandler(@PathVariable String filename, @RequestParam(required = false) String size, ServerWebExchange exchange){
+        long started=System.nanoTime();
+        //Cache hits never leave the event loop; misses stat and read the file on the blocking pool
+        CachedPoster cached=size==null?posterCache.peek(filename):null;
+        Mono<CachedPoster> poster=cached!=null?Mono.just(cached):blocking(()->resolvePoster(filename,size,exchange));
+        return poster.flatMap(resolved->writePoster(resolved,exchange,started));
+    }
+
+    private Mono<ResponseEntity<String>> store(String filename, Flux<DataBuffer> content, String checksum){
+        return blocking(()->{
+            try(InputStream poster=new DataBufferInputStream(content,UPLOAD_DEMAND)){
+                String uploadedFileName=fileService.storeFile(path,filename,poster,checksum);
+                //No movie references a standalone upload, so there is nothing to keep it pinned for
+                fileService.unpinFile(uploadedFileName);
+                return ResponseEntity.ok("File uploaded: "+uploadedFileName);
+            }
+        });
+    }
+
+    private Mono<Void> writePoster(CachedPoster poster, ServerWebExchange exchange, long started){
+        ServerHttpRequest request=exchange.getRequest();
+        ServerHttpResponse response=exchange.getResponse();
+        long length=poster.length();
+        String etag=poster.etag();
+
+        //1. Validators and caching headers go on every response, including 304s
+        response.getHeaders().setCacheControl(CacheControl.maxAge(Duration.ofSeconds(posterMaxAge)).cachePublic());
+        response.getHeaders().set(HttpHeaders.ACCEPT_RANGES,"bytes");
+        if(exchange.checkNotModified(etag,Instant.ofEpochMilli(poster.lastModified()))){
+            return response.setComplete();
+        }
+
+        //2. Work out which bytes to send
+        long start=0;
+        long end=length-1;
+        if(request.getHeaders().containsKey(HttpHeaders.RANGE) && isRangeApplicable(request,etag)){
+            List<HttpRange> ranges=parseRanges(request);
+            //Multipart byteranges are not worth the complexity for posters, so those get the full file
+            if(ranges.size()==1){
+                start=ranges.get(0).getRangeStart(length);
+                end=ranges.get(0).getRangeEnd(length);
+                //Only a well-formed range that misses the file entirely is refused
+                if(start>=length || start>end){
+                    response.setStatusCode(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.getHeaders().set(HttpHeaders.CONTENT_RANGE,"bytes */"+length);
+                    return response.setComplete();
+                }
+                response.setStatusCode(HttpStatus.PARTIAL_CONTENT);
+                response.getHeaders().set(HttpHeaders.CONTENT_RANGE,"bytes "+start+"-"+end+"/"+length);
+            }
+        }
+
+        response.getHeaders().setContentType(MediaType.parseMediaType(poster.contentType()));
+        response.getHeaders().setContentLength(end-start+1);
+        if(HttpMethod.HEAD.equals(request.getMethod())){
+            return response.setComplete();
+        }
+
+        //3. Cached posters are wrapped without copying, the rest are read asynchronously as the client drains them
+        if(poster.content()!=null){
+            ByteBuffer region=poster.content().duplicate();
+            region.position((int)start).limit((int)end+1);
+            long bytes=end-start+1;
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(region.slice())))
+                    .doOnSuccess(done->posterMetrics.served("memory",bytes,started));
+        }
+        Path file=poster.file();
+        Flux<DataBuffer> body=DataBufferUtils.readAsynchronousFileChannel(
+                ()->AsynchronousFileChannel.open(file,StandardOpenOption.READ),start,response.bufferFactory(),READ_BUFFER_SIZE);
+        long bytes=end-start+1;
+        return response.writeWith(DataBufferUtils.takeUntilByteCount(body,bytes))
+                .doOnSuccess(done->posterMetrics.served("file",bytes,started));
+    }
+
+    private CachedPoster resolvePoster(String filename, String size, ServerWebExchange exchange) throws Exception{
+        if(size!=null){
+            //Variants are JPEG; Accept picks between that and the original's format, and a variant not rendered yet means the original
+            PosterSize posterSize=PosterSize.fromParam(size);
+            exchange.getResponse().getHeaders().set(HttpHeaders.VARY,HttpHeaders.ACCEPT);
+            if(PosterFormats.prefersVariant(accept(exchange.getRequest()),filename)){
+                Path original=fileService.getResourcePath(path,filename);
+                Path variant=posterVariantService.getVariantPath(path,original.getFileName().toString(),posterSize);
+                if(variant!=null){
+                    return posterCache.load(posterSize.cacheKey(filename),()->variant);
+                }
+            }
+        }
+        //The file is only resolved, and the disk only touched, on a miss
+        return posterCache.load(filename,()->fileService.getResourcePath(path,filename));
+    }
+
+    //A missing or unparseable Accept takes anything
+    private List<MediaType> accept(ServerHttpRequest request){
+        try{
+            return request.getHeaders().getAccept();
+        }catch (InvalidMediaTypeException ex){
+            return List.of();
+        }
+    }
+
+    //A Range that doesn't parse (bad syntax, units other than bytes, too many ranges) is ignored, not refused (RFC 9110 14.2)
+    private List<HttpRange> parseRanges(ServerHttpRequest request){
+        try{
+            return request.getHeaders().getRange();
+        }catch (IllegalArgumentException ex){
+            return List.of();
+        }
+    }
+
+    //If-Range needs a strong match: a date only has second precision, so it is treated as weak and the full file is sent
+    private boolean isRangeApplicable(ServerHttpRequest request, String etag){
+        String ifRange=request.getHeaders().getFirst(HttpHeaders.IF_RANGE);
+        return ifRange==null || (ifRange.startsWith("\"") && ifRange.equals(etag));
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call){
+        return Mono.fromCallable(call).subscribeOn(blockingScheduler);
+    }
+}
@@ -0,0 +1,252 @@
+package com.movieflix.movieApi.controllers;
+
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.BulkIngestResponse;
+import com.movieflix.movieApi.dto.BulkMutationResponse;
+import com.movieflix.movieApi.dto.FacetFilter;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.MovieScrollResponse;
+import com.movieflix.movieApi.dto.MovieSearchResponse;
+import com.movieflix.movieApi.dto.SuggesterStats;
+import com.movieflix.movieApi.dto.Suggestion;
+import com.movieflix.movieApi.dto.Views;
+import com.movieflix.movieApi.exceptions.EmptyFileException;
+import com.movieflix.movieApi.mappers.MovieMapper;
+import com.movieflix.movieApi.search.MovieSuggester;
+import com.movieflix.movieApi.service.BulkMovieService;
+import com.movieflix.movieApi.service.MovieService;
+import com.movieflix.movieApi.utils.AppConstants;
+import com.movieflix.movieApi.utils.DataBufferInputStream;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * WebFlux twin of {@link MovieController}, active with spring.main.web-application-type=reactive.
+ * Connections are held by the event loop; the service layer still blocks on JPA, so every call into it runs on the bounded blockingScheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/v1/movie")
+public class ReactiveMovieController {
+
+    //Buffers requested at a time from an upload while it is copied into the poster store
+    private static final int UPLOAD_DEMAND = 16;
+
+    //Manifests are read whole, so they get a hard cap
+    private static final int MAX_MANIFEST_BYTES = 16 * 1024 * 1024;
+
+    private final MovieService movieService;
+
+    private final BulkMovieService bulkMovieService;
+
+    private final MovieSuggester movieSuggester;
+
+    private final MovieMapper movieMapper;
+
+    private final Scheduler blockingScheduler;
+
+    private final CatalogueVersion catalogueVersion;
+
+    public ReactiveMovieController(MovieService movieService, BulkMovieService bulkMovieService, MovieSuggester movieSuggester,
+                                   MovieMapper movieMapper, @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                                   CatalogueVersion catalogueVersion) {
+        this.movieService = movieService;
+        this.bulkMovieService = bulkMovieService;
+        this.movieSuggester = movieSuggester;
+        this.movieMapper = movieMapper;
+        this.blockingScheduler = blockingScheduler;
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    //Movies read per trip to the blocking pool while exporting
+    @Value("${project.reactive.export-page-size:500}")
+    private int exportPageSize;
+
+    @PostMapping("/add-movie")
+    public Mono<ResponseEntity<MovieDto>> addMovieHandler(@RequestPart FilePart file, @RequestPart String movieDto,
+                                                          @RequestParam(required = false) String checksum) {
+        //The poster is pulled from the request as the store consumes it, never buffered whole
+        return Mono.using(()->new DataBufferInputStream(file.content(),UPLOAD_DEMAND),
+                poster->blocking(poster::isEmpty).flatMap(empty->empty
+                        ? Mono.error(new EmptyFileException("File is empty! Please send another file."))
+                        : blocking(()->movieService.addMovie(movieMapper.readDto(movieDto),file.filename(),poster,checksum))),
+                DataBufferInputStream::close
+        ).map(dto->new ResponseEntity<>(dto,HttpStatus.CREATED));
+    }
+
+    @PostMapping("/bulk-add")
+    public Mono<ResponseEntity<BulkIngestResponse>> addMoviesHandler(@RequestPart FilePart manifest, @RequestPart FilePart posters) {
+        //The archive needs random access, so it is spooled to disk first (non-blocking) and ingested from there
+        return Mono.usingWhen(
+                blocking(()->Files.createTempFile("posters-",".zip")),
+                archive->posters.transferTo(archive)
+                        .then(DataBufferUtils.join(manifest.content(),MAX_MANIFEST_BYTES))
+                        .flatMap(buffer->{
+                            byte[] bytes=new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            return blocking(()->bulkMovieService.addMovies(new ByteArrayInputStream(bytes),archive));
+                        }),
+                archive->blocking(()->Files.deleteIfExists(archive))
+        ).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{movieId}")
+    public Mono<ResponseEntity<MovieDto>> getMovieHandler(@PathVariable Integer movieId) {
+        return blocking(()->movieService.getMovie(movieId))
+                .doOnNext(dto->movieSuggester.recordView(movieId))
+                .map(ResponseEntity::ok);
+    }
+
+    //Listings carry the catalogue version as their ETag; a client that still has it gets a 304 without the service being called
+    @GetMapping("/all")
+    public Mono<ResponseEntity<MappingJacksonValue>> getAllMovieHandler(@RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                        ServerWebExchange exchange){
+        return listing(exchange,view,movieService::getAllMovies);
+    }
+
+    //One JSON object per line, read from the database only as fast as the client takes them.
+    //Each keyset page is its own short call on the blocking pool, so a slow client holds a thread for one page, never for the whole download
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieDto> exportAllMoviesHandler(){
+        return exportPage(null)
+                .expand(page->page.nextCursor()==null?Mono.empty():exportPage(page.nextCursor()))
+                //One page at a time: the next is only read once the client has taken the last
+                .concatMapIterable(MovieScrollResponse::movieDtos,1);
+    }
+
+    @PutMapping("/update/{movieId}")
+    public Mono<ResponseEntity<MovieDto>> updateMovieHandler(@PathVariable Integer movieId, @RequestPart(required = false) FilePart file,
+                                                             @RequestPart String movieDtoObj, @RequestParam(required = false) String checksum) {
+        return blocking(()->{
+            MovieDto movieDto=movieMapper.readDto(movieDtoObj);
+            if(file==null){
+                return movieService.updateMovie(movieId,movieDto,null,null,checksum);
+            }
+            try(DataBufferInputStream poster=new DataBufferInputStream(file.content(),UPLOAD_DEMAND)){
+                //An empty part keeps the current poster, as MultipartFile.isEmpty() does on the servlet side
+                return poster.isEmpty()
+                        ? movieService.updateMovie(movieId,movieDto,null,null,checksum)
+                        : movieService.updateMovie(movieId,movieDto,file.filename(),poster,checksum);
+            }
+        }).map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/delete/{movieId}")
+    public Mono<ResponseEntity<String>> deleteMovieHandler(@PathVariable Integer movieId) {
+        return blocking(()->movieService.deleteMovie(movieId)).map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/bulk-update")
+    public Mono<ResponseEntity<BulkMutationResponse>> updateMoviesHandler(@RequestBody List<MovieDto> movieDtos) {
+        return blocking(()->bulkMovieService.updateMovies(movieDtos)).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/bulk-delete")
+    public Mono<ResponseEntity<BulkMutationResponse>> deleteMoviesHandler(@RequestBody List<Integer> movieIds) {
+        return blocking(()->bulkMovieService.deleteMovies(movieIds)).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/allMoviesPage")
+    public Mono<ResponseEntity<MappingJacksonValue>> getMoviesWithPagination(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                             @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                             @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                             ServerWebExchange exchange){
+        return listing(exchange,view,()->movieService.getAllMoviesWithPagination(pageNumber,pageSize));
+    }
+
+    @GetMapping("/allMoviesPageSort")
+    public Mono<ResponseEntity<MappingJacksonValue>> getMoviesWithPaginationAndSorting(@RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                                       @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                                       @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+                                                                                       @RequestParam(defaultValue = AppConstants.SORT_DIR, required = false) String dir,
+                                                                                       @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                                       ServerWebExchange exchange){
+        return listing(exchange,view,()->movieService.getAllMoviesWithPagination(pageNumber,pageSize,sortBy,dir));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<MovieSearchResponse>> searchMoviesHandler(@RequestParam String q,
+                                                                         @RequestParam(defaultValue = AppConstants.SEARCH_LIMIT, required = false) Integer limit){
+        return blocking(()->movieService.searchMovies(q,limit)).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/browse")
+    public Mono<ResponseEntity<MappingJacksonValue>> browseMoviesHandler(@RequestParam(required = false) Integer yearFrom,
+                                                                          @RequestParam(required = false) Integer yearTo,
+                                                                          @RequestParam(required = false) String studio,
+                                                                          @RequestParam(required = false) String director,
+                                                                          @RequestParam(required = false) String castMember,
+                                                                          @RequestParam(defaultValue = AppConstants.PAGE_NUMBER,required=false) @Min(0) Integer pageNumber,
+                                                                          @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                          @RequestParam(defaultValue = AppConstants.FACET_LIMIT, required = false) @Min(0) @Max(AppConstants.MAX_FACET_LIMIT) Integer facetLimit,
+                                                                          @RequestParam(defaultValue = AppConstants.VIEW, required = false) String view,
+                                                                          ServerWebExchange exchange){
+        FacetFilter filter=new FacetFilter(yearFrom,yearTo,studio,director,castMember);
+        return listing(exchange,view,()->movieService.browseMovies(filter,pageNumber,pageSize,facetLimit));
+    }
+
+    //The suggester is in memory, so these two answer straight from the event loop
+    @GetMapping("/suggest")
+    public Flux<Suggestion> suggestHandler(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = AppConstants.SUGGEST_LIMIT, required = false) @Positive @Max(AppConstants.MAX_SUGGEST_LIMIT) Integer limit){
+        return Flux.fromIterable(movieSuggester.suggest(prefix,limit));
+    }
+
+    @GetMapping("/suggest/stats")
+    public Mono<ResponseEntity<SuggesterStats>> suggesterStatsHandler(){
+        return Mono.fromSupplier(()->ResponseEntity.ok(movieSuggester.stats()));
+    }
+
+    @GetMapping("/allMoviesScroll")
+    public Mono<ResponseEntity<MovieScrollResponse>> getMoviesWithScroll(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = AppConstants.PAGE_SIZE,required = false) @Positive @Max(AppConstants.MAX_PAGE_SIZE) Integer pageSize,
+                                                                         @RequestParam(defaultValue = AppConstants.SORT_BY, required = false) String sortBy,
+                                                                         @RequestParam(defaultValue = AppConstants.SORT_DIR, required = false) String dir,
+                                                                         @RequestParam(defaultValue = "false", required = false) boolean withTotal){
+        return blocking(()->movieService.getAllMoviesWithScroll(cursor,pageSize,sortBy,dir,withTotal)).map(ResponseEntity::ok);
+    }
+
+    private Mono<MovieScrollResponse> exportPage(String cursor){
+        return blocking(()->movieService.getAllMoviesWithScroll(cursor,exportPageSize,AppConstants.SORT_BY,AppConstants.SORT_DIR,false));
+    }
+
+    private <T> Mono<T> blocking(Callable<T> call){
+        return Mono.fromCallable(call).subscribeOn(blockingScheduler);
+    }
+
+    //no-cache: clients may keep the listing but must revalidate it, which costs them a 304 at most
+    private Mono<ResponseEntity<MappingJacksonValue>> listing(ServerWebExchange exchange, String view, Callable<Object> read){
+        String etag=catalogueVersion.etag();
+        if(exchange.checkNotModified(etag)){
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return blocking(read).map(body->{
+            MappingJacksonValue value=new MappingJacksonValue(body);
+            value.setSerializationView(Views.of(view));
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(value);
+        });
+    }
+}
@@ -0,0 +1,6 @@
+package com.movieflix.movieApi.dto;
+
+import java.util.List;
+
+public record BulkIngestResponse(int received, int created, int failed, long elapsedMillis, double moviesPerSecond, List<BulkItemResult> items) {
+}
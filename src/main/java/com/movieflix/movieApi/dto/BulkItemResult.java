@@ -0,0 +1,14 @@
+package com.movieflix.movieApi.dto;
+
+public record BulkItemResult(int index, String title, String poster, Integer movieId, Status status, String message) {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        //Breaks a column limit, so it was never sent to the database
+        REJECTED,
+        FAILED
+    }
+}
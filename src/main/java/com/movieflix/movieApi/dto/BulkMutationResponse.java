@@ -0,0 +1,6 @@
+package com.movieflix.movieApi.dto;
+
+import java.util.List;
+
+public record BulkMutationResponse(int received, int succeeded, int failed, long elapsedMillis, List<BulkItemResult> items) {
+}
@@ -0,0 +1,7 @@
+package com.movieflix.movieApi.dto;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+@JsonView(Views.Compact.class)
+public record FacetCount(String value, int count) {
+}
@@ -0,0 +1,7 @@
+package com.movieflix.movieApi.dto;
+
+/**
+ * Browse filters; every one that is set must match. Years are inclusive, text values match exactly as returned in the facets.
+ */
+public record FacetFilter(Integer yearFrom, Integer yearTo, String studio, String director, String castMember) {
+}
@@ -1,5 +1,6 @@
 package com.movieflix.movieApi.dto;
 
+import com.fasterxml.jackson.annotation.JsonView;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,7 @@ import java.util.Set;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonView(Views.Compact.class)
 public class MovieDto {
 
     private Integer movieId;
@@ -30,6 +32,7 @@ public class MovieDto {
     @NotBlank(message = "Please provide movie's poster!")
     private String poster;
 
+    @JsonView(Views.Full.class)
     @NotBlank(message = "Please provide poster's url!")
     private String posterUrl;
 }
\ No newline at end of file
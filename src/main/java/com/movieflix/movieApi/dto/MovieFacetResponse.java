@@ -0,0 +1,12 @@
+package com.movieflix.movieApi.dto;
+
+import com.fasterxml.jackson.annotation.JsonView;
+
+import java.util.List;
+import java.util.SortedMap;
+
+@JsonView(Views.Compact.class)
+public record MovieFacetResponse(List<MovieDto> movieDtos, Integer pageNumber, Integer pageSize, long totalElements,
+                                 SortedMap<Integer, Integer> releaseYears, List<FacetCount> studios, List<FacetCount> directors,
+                                 List<FacetCount> cast, long tookMicros) {
+}
@@ -1,7 +1,10 @@
 package com.movieflix.movieApi.dto;
 
+import com.fasterxml.jackson.annotation.JsonView;
+
 import java.util.List;
 
+@JsonView(Views.Compact.class)
 public record MoviePageResponse(List<MovieDto> movieDtos, Integer pageNumber, Integer pageSize, long totalElements, int totalPages, boolean isLast) {
 }
 
@@ -0,0 +1,6 @@
+package com.movieflix.movieApi.dto;
+
+import java.util.List;
+
+public record MovieScrollResponse(List<MovieDto> movieDtos, Integer pageSize, String nextCursor, boolean isLast, Long totalElements) {
+}
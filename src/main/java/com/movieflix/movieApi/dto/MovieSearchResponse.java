@@ -0,0 +1,6 @@
+package com.movieflix.movieApi.dto;
+
+import java.util.List;
+
+public record MovieSearchResponse(String query, List<MovieDto> movieDtos, long tookMicros) {
+}
@@ -0,0 +1,4 @@
+package com.movieflix.movieApi.dto;
+
+public record PosterCacheStats(long hitCount, long missCount, double hitRate, long evictionCount, long residentBytes, long maxBytes, long entries) {
+}
@@ -0,0 +1,4 @@
+package com.movieflix.movieApi.dto;
+
+public record PosterVariantInfo(String size, String contentType, int width, int height, long bytes, String url) {
+}
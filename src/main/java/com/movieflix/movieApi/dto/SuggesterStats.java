@@ -0,0 +1,4 @@
+package com.movieflix.movieApi.dto;
+
+public record SuggesterStats(int phrases, int keys, long trackedViews, long estimatedBytes) {
+}
@@ -0,0 +1,10 @@
+package com.movieflix.movieApi.dto;
+
+public record Suggestion(String text, Kind kind, long weight) {
+
+    public enum Kind {
+        TITLE,
+        DIRECTOR,
+        CAST
+    }
+}
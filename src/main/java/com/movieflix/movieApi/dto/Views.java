@@ -0,0 +1,21 @@
+package com.movieflix.movieApi.dto;
+
+/**
+ * Jackson views for listings. Compact leaves out what a client can work out itself, such as posterUrl,
+ * which is just the base url followed by /file/ and the poster.
+ */
+public final class Views {
+
+    public interface Compact {
+    }
+
+    public interface Full extends Compact {
+    }
+
+    private Views() {
+    }
+
+    public static Class<?> of(String view) {
+        return "compact".equalsIgnoreCase(view) ? Compact.class : Full.class;
+    }
+}
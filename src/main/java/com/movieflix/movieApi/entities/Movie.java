@@ -1,10 +1,12 @@
 package com.movieflix.movieApi.entities;
 
+import com.movieflix.movieApi.utils.AppConstants;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.Set;
 
@@ -18,7 +20,7 @@ public class Movie {
     private Integer movieId;
 
 
-    @Column(nullable = false, length = 200)
+    @Column(nullable = false, length = AppConstants.MAX_TITLE_LENGTH)
     @NotBlank(message = "Please provide movie's title!")
     private String title;
 
@@ -30,8 +32,10 @@ public class Movie {
     @NotBlank(message = "Please provide movie's studio!")
     private String studio;
 
+    //Cast for a whole page of movies is loaded with one IN query instead of one query per movie
     @ElementCollection
     @CollectionTable(name = "movie_cast")
+    @BatchSize(size = 100)
     private Set<String> movieCast;
 
     @Column(nullable = false)
@@ -0,0 +1,33 @@
+package com.movieflix.movieApi.events;
+
+import com.movieflix.movieApi.dto.MovieDto;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Published after a movie is created, updated or deleted so in-memory views of the catalogue can follow along.
+ * {@code movie} holds the new state and is null for deletions.
+ * {@code sequence} orders changes against each other and against an export: events are only created once their
+ * change has committed, so a row exported after {@link #currentSequence()} read n already reflects every change up to n.
+ */
+public record MovieChangedEvent(Type type, Integer movieId, MovieDto movie, long sequence) {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    public static MovieChangedEvent saved(MovieDto movie) {
+        return new MovieChangedEvent(Type.SAVED, movie.getMovieId(), movie, SEQUENCE.incrementAndGet());
+    }
+
+    public static MovieChangedEvent deleted(Integer movieId) {
+        return new MovieChangedEvent(Type.DELETED, movieId, null, SEQUENCE.incrementAndGet());
+    }
+
+    public static long currentSequence() {
+        return SEQUENCE.get();
+    }
+}
@@ -0,0 +1,7 @@
+package com.movieflix.movieApi.exceptions;
+
+public class ChecksumMismatchException extends RuntimeException{
+    public ChecksumMismatchException(String message){
+        super(message);
+    }
+}
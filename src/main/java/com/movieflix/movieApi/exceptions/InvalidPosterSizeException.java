@@ -0,0 +1,7 @@
+package com.movieflix.movieApi.exceptions;
+
+public class InvalidPosterSizeException extends RuntimeException{
+    public InvalidPosterSizeException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.movieflix.movieApi.exceptions;
+
+public class PosterTooLargeException extends RuntimeException{
+    public PosterTooLargeException(String message){
+        super(message);
+    }
+}
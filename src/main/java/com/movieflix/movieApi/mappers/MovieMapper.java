@@ -0,0 +1,144 @@
+package com.movieflix.movieApi.mappers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.entities.Movie;
+import com.movieflix.movieApi.repositories.MovieRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The one place movies are converted between entity, DTO and JSON.
+ * Readers are built once from Boot's ObjectMapper, so parsing a request reuses Jackson's cached deserializers
+ * and honours the same configuration as the rest of the API.
+ */
+@Component
+public class MovieMapper {
+
+    private final ObjectReader movieDtoReader;
+
+    private final ObjectReader movieDtoListReader;
+
+    private final ObjectWriter movieDtoLineWriter;
+
+    private final String posterUrlPrefix;
+
+    public MovieMapper(ObjectMapper objectMapper, @Value("${base.url}") String baseUrl) {
+        this.movieDtoReader = objectMapper.readerFor(MovieDto.class);
+        this.movieDtoListReader = objectMapper.readerForListOf(MovieDto.class);
+        this.movieDtoLineWriter = objectMapper.writerFor(MovieDto.class).withRootValueSeparator("\n");
+        this.posterUrlPrefix = baseUrl + "/file/";
+    }
+
+    //Cast is copied out of the lazy collection so cached DTOs never reach back into a closed session;
+    //an immutable copy is a single array rather than a HashMap node per member
+    public MovieDto toDto(Movie movie) {
+        return new MovieDto(
+                movie.getMovieId(),
+                movie.getTitle(),
+                movie.getDirector(),
+                movie.getStudio(),
+                movie.getMovieCast()==null?null:Set.copyOf(movie.getMovieCast()),
+                movie.getReleaseYear(),
+                movie.getPoster(),
+                posterUrl(movie.getPoster())
+        );
+    }
+
+    public List<MovieDto> toDtos(List<Movie> movies) {
+        List<MovieDto> movieDtos=new ArrayList<>(movies.size());
+        for(Movie movie: movies){
+            movieDtos.add(toDto(movie));
+        }
+        return movieDtos;
+    }
+
+    public MovieDto toDto(MovieRow row) {
+        return new MovieDto(
+                row.movieId(),
+                row.title(),
+                row.director(),
+                row.studio(),
+                row.cast()==null?Set.of():Set.copyOf(Arrays.asList(row.cast().split(MovieRow.CAST_SEPARATOR))),
+                row.releaseYear(),
+                row.poster(),
+                posterUrl(row.poster())
+        );
+    }
+
+    //The flat form of a saved movie, cast joined the way the listing queries aggregate it
+    public MovieRow toRow(MovieDto movieDto) {
+        return new MovieRow(
+                movieDto.getMovieId(),
+                movieDto.getTitle(),
+                movieDto.getDirector(),
+                movieDto.getStudio(),
+                movieDto.getReleaseYear(),
+                movieDto.getPoster(),
+                movieDto.getMovieCast()==null || movieDto.getMovieCast().isEmpty()?null:String.join(MovieRow.CAST_SEPARATOR,movieDto.getMovieCast())
+        );
+    }
+
+    public List<MovieDto> rowsToDtos(List<MovieRow> rows) {
+        List<MovieDto> movieDtos=new ArrayList<>(rows.size());
+        for(MovieRow row: rows){
+            movieDtos.add(toDto(row));
+        }
+        return movieDtos;
+    }
+
+    //The DTO as it looks once saved under the given id, for rows that were written without going through an entity
+    public MovieDto toDto(Integer movieId, MovieDto movieDto) {
+        return new MovieDto(
+                movieId,
+                movieDto.getTitle(),
+                movieDto.getDirector(),
+                movieDto.getStudio(),
+                movieDto.getMovieCast(),
+                movieDto.getReleaseYear(),
+                movieDto.getPoster(),
+                posterUrl(movieDto.getPoster())
+        );
+    }
+
+    public Movie toEntity(Integer movieId, MovieDto movieDto) {
+        return new Movie(
+                movieId,
+                movieDto.getTitle(),
+                movieDto.getDirector(),
+                movieDto.getStudio(),
+                movieDto.getMovieCast(),
+                movieDto.getReleaseYear(),
+                movieDto.getPoster()
+        );
+    }
+
+    public String posterUrl(String poster) {
+        return posterUrlPrefix+poster;
+    }
+
+    public MovieDto readDto(String json) throws JsonProcessingException {
+        return movieDtoReader.readValue(json);
+    }
+
+    public List<MovieDto> readDtos(InputStream json) throws IOException {
+        return movieDtoListReader.readValue(json);
+    }
+
+    //One JSON object per line, for NDJSON exports
+    public SequenceWriter lineWriter(OutputStream out) throws IOException {
+        return movieDtoLineWriter.writeValues(out);
+    }
+}
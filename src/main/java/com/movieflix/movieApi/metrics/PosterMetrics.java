@@ -0,0 +1,66 @@
+package com.movieflix.movieApi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and size of poster reads and writes. Meters are looked up per tag set rather than built per call,
+ * so recording on the serving path is a map hit and two atomic adds.
+ */
+@Component
+public class PosterMetrics {
+
+    private static final double MIN_POSTER_BYTES = 1024;
+
+    private static final double MAX_POSTER_BYTES = 20 * 1024 * 1024;
+
+    private final Meter.MeterProvider<Timer> served;
+
+    private final Meter.MeterProvider<DistributionSummary> servedBytes;
+
+    private final Meter.MeterProvider<Timer> uploads;
+
+    private final DistributionSummary uploadBytes;
+
+    public PosterMetrics(MeterRegistry registry) {
+        this.served = Timer.builder("movieflix.poster.served")
+                .description("Time from request to the poster body being handed to the connection")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+        this.servedBytes = DistributionSummary.builder("movieflix.poster.served.bytes")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_POSTER_BYTES)
+                .maximumExpectedValue(MAX_POSTER_BYTES)
+                .withRegistry(registry);
+        this.uploads = Timer.builder("movieflix.poster.upload")
+                .description("Time to spool, hash and store an uploaded poster")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+        this.uploadBytes = DistributionSummary.builder("movieflix.poster.upload.bytes")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_POSTER_BYTES)
+                .maximumExpectedValue(MAX_POSTER_BYTES)
+                .register(registry);
+    }
+
+    //source is where the body came from: memory, sendfile or file
+    public void served(String source, long bytes, long startedNanos) {
+        served.withTags("source", source).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        servedBytes.withTags("source", source).record(bytes);
+    }
+
+    //outcome is stored, duplicate, too_large, checksum_mismatch or failed; rejected uploads have no meaningful size
+    public void uploaded(String outcome, long bytes, long startedNanos) {
+        uploads.withTags("outcome", outcome).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        if (bytes > 0) {
+            uploadBytes.record(bytes);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.movieflix.movieApi.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Counts every statement Hibernate prepares, by kind, in place of show-sql.
+ * A page request that suddenly issues one select per movie shows up here as a step in the select rate.
+ */
+@Component
+public class SqlStatementMetrics implements StatementInspector {
+
+    private final Counter selects;
+
+    private final Counter inserts;
+
+    private final Counter updates;
+
+    private final Counter deletes;
+
+    private final Counter others;
+
+    public SqlStatementMetrics(MeterRegistry registry) {
+        this.selects = counter(registry, "select");
+        this.inserts = counter(registry, "insert");
+        this.updates = counter(registry, "update");
+        this.deletes = counter(registry, "delete");
+        this.others = counter(registry, "other");
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String statement = sql.stripLeading();
+        int end = statement.indexOf(' ');
+        String kind = (end < 0 ? statement : statement.substring(0, end)).toLowerCase(Locale.ROOT);
+        switch (kind) {
+            case "select", "with" -> selects.increment();
+            case "insert" -> inserts.increment();
+            case "update" -> updates.increment();
+            case "delete" -> deletes.increment();
+            default -> others.increment();
+        }
+        return sql;
+    }
+
+    private static Counter counter(MeterRegistry registry, String kind) {
+        return Counter.builder("movieflix.sql.statements")
+                .description("SQL statements prepared by Hibernate")
+                .tag("kind", kind)
+                .register(registry);
+    }
+}
@@ -0,0 +1,166 @@
+package com.movieflix.movieApi.repositories;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC batches for bulk writes. Movie ids are IDENTITY-generated, which stops Hibernate from batching inserts,
+ * so these statements go straight through JdbcTemplate with the same table layout Hibernate maps.
+ */
+@Repository
+@Timed("movieflix.repository")
+public class MovieBatchRepository {
+
+    private static final String INSERT_MOVIE = "insert into movie (title, director, studio, release_year, poster) values (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_CAST = "insert into movie_cast (movie_movie_id, movie_cast) values (?, ?)";
+
+    private static final String LOCK_MOVIES = "select movie_id, title, poster from movie where movie_id in (:ids) for update";
+
+    private static final String UPDATE_MOVIE = "update movie set title = ?, director = ?, studio = ?, release_year = ? where movie_id = ?";
+
+    private static final String DELETE_MOVIE = "delete from movie where movie_id = ?";
+
+    private static final String DELETE_CAST = "delete from movie_cast where movie_movie_id = ?";
+
+    private static final String COUNT_POSTER_REFERENCES = "select poster, count(*) from movie where poster in (:posters) group by poster";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public MovieBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * The columns a batch mutation needs from a movie it is about to change.
+     */
+    public record LockedMovie(Integer movieId, String title, String poster) {
+    }
+
+    /**
+     * Inserts the movies and their cast in two batches and returns the generated ids in input order.
+     */
+    public List<Integer> insertMovies(List<MovieDto> movies) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_MOVIE, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        MovieDto movie = movies.get(i);
+                        ps.setString(1, movie.getTitle());
+                        ps.setString(2, movie.getDirector());
+                        ps.setString(3, movie.getStudio());
+                        ps.setInt(4, movie.getReleaseYear());
+                        ps.setString(5, movie.getPoster());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return movies.size();
+                    }
+                },
+                keyHolder);
+
+        List<Integer> ids = new ArrayList<>(movies.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            ids.add(((Number) keys.values().iterator().next()).intValue());
+        }
+
+        List<Object[]> castRows = new ArrayList<>();
+        for (int i = 0; i < movies.size(); i++) {
+            if (movies.get(i).getMovieCast() != null) {
+                for (String member : movies.get(i).getMovieCast()) {
+                    castRows.add(new Object[]{ids.get(i), member});
+                }
+            }
+        }
+        if (!castRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CAST, castRows);
+        }
+        return ids;
+    }
+
+    /**
+     * Loads the given movies in one statement and row-locks them until the surrounding transaction ends, so nothing
+     * deletes or repoints them between this read and the batch that follows. Ids with no movie are simply absent.
+     */
+    public Map<Integer, LockedMovie> lockMovies(Collection<Integer> ids) {
+        Map<Integer, LockedMovie> movies = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return movies;
+        }
+        namedJdbcTemplate.query(LOCK_MOVIES, Map.of("ids", ids), (RowCallbackHandler) rs -> {
+            LockedMovie movie = new LockedMovie(rs.getInt(1), rs.getString(2), rs.getString(3));
+            movies.put(movie.movieId(), movie);
+        });
+        return movies;
+    }
+
+    /**
+     * Rewrites the scalar columns of existing movies (the poster is left alone) and replaces their cast, in three batches.
+     */
+    public void updateMovies(List<MovieDto> movies) {
+        List<Object[]> rows = new ArrayList<>(movies.size());
+        List<Object[]> ids = new ArrayList<>(movies.size());
+        List<Object[]> castRows = new ArrayList<>();
+        for (MovieDto movie : movies) {
+            rows.add(new Object[]{movie.getTitle(), movie.getDirector(), movie.getStudio(), movie.getReleaseYear(), movie.getMovieId()});
+            ids.add(new Object[]{movie.getMovieId()});
+            if (movie.getMovieCast() != null) {
+                for (String member : movie.getMovieCast()) {
+                    castRows.add(new Object[]{movie.getMovieId(), member});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate(UPDATE_MOVIE, rows);
+        jdbcTemplate.batchUpdate(DELETE_CAST, ids);
+        if (!castRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_CAST, castRows);
+        }
+    }
+
+    /**
+     * Deletes the movies and their cast in two batches, cast first to satisfy the foreign key.
+     */
+    public void deleteMovies(Collection<Integer> movieIds) {
+        List<Object[]> ids = movieIds.stream().map(id -> new Object[]{id}).toList();
+        jdbcTemplate.batchUpdate(DELETE_CAST, ids);
+        jdbcTemplate.batchUpdate(DELETE_MOVIE, ids);
+    }
+
+    /**
+     * How many movies reference each poster, in one statement. Posters nothing references are absent.
+     */
+    public Map<String, Long> countPosterReferences(Collection<String> posters) {
+        Map<String, Long> references = new HashMap<>();
+        if (posters.isEmpty()) {
+            return references;
+        }
+        namedJdbcTemplate.query(COUNT_POSTER_REFERENCES, Map.of("posters", posters),
+                (RowCallbackHandler) rs -> {
+                    references.put(rs.getString(1), rs.getLong(2));
+                });
+        return references;
+    }
+}
@@ -1,7 +1,49 @@
 package com.movieflix.movieApi.repositories;
 
 import com.movieflix.movieApi.entities.Movie;
+import com.movieflix.movieApi.utils.AppConstants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface MovieRepository extends JpaRepository<Movie,Integer> {
+
+    //Listing reads: one statement per page, cast folded into each row with listagg (group_concat on MySQL).
+    //The cast is a correlated subquery rather than a join + group by, so ORDER BY ... LIMIT can walk a sort index
+    //and stop after one page instead of grouping and sorting the whole table first
+    String MOVIE_ROWS = "select new com.movieflix.movieApi.repositories.MovieRow(m.movieId, m.title, m.director, m.studio, m.releaseYear, m.poster, "
+            + "(select listagg(c, '" + MovieRow.CAST_SEPARATOR + "') from m.movieCast c)) from Movie m";
+
+    @Query(MOVIE_ROWS)
+    List<MovieRow> findAllRows();
+
+    //Sort properties from the Pageable are applied to the movie alias
+    @Query(value = MOVIE_ROWS, countQuery = "select count(m) from Movie m")
+    Page<MovieRow> findAllRows(Pageable pageable);
+
+    @Query(MOVIE_ROWS + " where m.movieId in :ids")
+    List<MovieRow> findAllRowsById(Collection<Integer> ids);
+
+    //How many movies share a poster blob; it may only be deleted at zero
+    long countByPoster(String poster);
+
+    //Keyset scrolling: seeks past the last returned row instead of using OFFSET, and never runs a count
+    Window<Movie> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    //Server-side cursor over the whole catalogue; callers must consume it inside a transaction and close it
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE))
+    @Query(MOVIE_ROWS + " order by m.movieId")
+    Stream<MovieRow> streamAllRows();
 }
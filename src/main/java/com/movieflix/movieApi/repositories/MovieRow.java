@@ -0,0 +1,11 @@
+package com.movieflix.movieApi.repositories;
+
+/**
+ * One movie as a flat, unmanaged row, with its cast already aggregated by the database into a single column.
+ * Nothing is tracked by the persistence context, so listing reads skip entity hydration, snapshots and the cast query.
+ */
+public record MovieRow(Integer movieId, String title, String director, String studio, Integer releaseYear, String poster, String cast) {
+
+    //ASCII unit separator: cannot appear in a name typed into a form, so the aggregated cast splits unambiguously
+    public static final String CAST_SEPARATOR = "\u001f";
+}
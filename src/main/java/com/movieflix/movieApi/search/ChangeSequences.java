@@ -0,0 +1,35 @@
+package com.movieflix.movieApi.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The sequence of the last change applied to each movie, tracked only while a build is running: outside one no
+ * exported row can arrive late, so nothing needs remembering. Not thread-safe; guarded by the owning index's lock.
+ */
+final class ChangeSequences {
+
+    //movieId -> sequence of its last applied put or remove; null outside a build
+    private Map<Integer, Long> latest;
+
+    void start() {
+        latest = new HashMap<>();
+    }
+
+    void finish() {
+        latest = null;
+    }
+
+    //Whether a change with this sequence is still current, recording it if so
+    boolean accept(Integer movieId, long sequence) {
+        if (latest == null) {
+            return true;
+        }
+        Long last = latest.get(movieId);
+        if (last != null && last > sequence) {
+            return false;
+        }
+        latest.put(movieId, sequence);
+        return true;
+    }
+}
@@ -0,0 +1,273 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.FacetCount;
+import com.movieflix.movieApi.dto.FacetFilter;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process bitmaps for faceted browsing: one BitSet of movie ids per release year, studio, director and cast member.
+ * Filters are ANDs of those bitmaps; counts over the whole catalogue are kept up to date as movies change,
+ * so browse pages never scan the table.
+ */
+@Component
+public class MovieFacetIndex implements MovieIndex {
+
+    //Every indexed movie
+    private final BitSet all = new BitSet();
+
+    //Sorted, so a year range is a sub-map
+    private final NavigableMap<Integer, BitSet> yearBits = new TreeMap<>();
+
+    private final Facet<Integer> releaseYears = new Facet<>(yearBits);
+
+    private final Facet<String> studios = new Facet<>(new HashMap<>());
+
+    private final Facet<String> directors = new Facet<>(new HashMap<>());
+
+    private final Facet<String> cast = new Facet<>(new HashMap<>());
+
+    //movieId -> the values it was filed under, needed to take it back out and to count a filtered set
+    private final Map<Integer, Entry> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ChangeSequences sequences = new ChangeSequences();
+
+    private record Entry(Integer releaseYear, String studio, String director, Set<String> cast) {
+    }
+
+    /**
+     * One page of matching ids in movieId order, plus facet counts over every match.
+     */
+    public record Result(List<Integer> movieIds, long totalElements, SortedMap<Integer, Integer> releaseYears,
+                         List<FacetCount> studios, List<FacetCount> directors, List<FacetCount> cast) {
+    }
+
+    @Override
+    public void startBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void finishBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.finish();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.type() == MovieChangedEvent.Type.DELETED) {
+            remove(event.movieId(), event.sequence());
+        } else {
+            put(event.movie(), event.sequence());
+        }
+    }
+
+    @Override
+    public void put(MovieDto movie, long sequence) {
+        Entry entry = new Entry(movie.getReleaseYear(), movie.getStudio(), movie.getDirector(),
+                movie.getMovieCast() == null ? Set.of() : Set.copyOf(movie.getMovieCast()));
+        int id = movie.getMovieId();
+
+        lock.writeLock().lock();
+        try {
+            if (!sequences.accept(id, sequence)) {
+                return;
+            }
+            removeLocked(id);
+            documents.put(id, entry);
+            all.set(id);
+            releaseYears.add(entry.releaseYear(), id);
+            studios.add(entry.studio(), id);
+            directors.add(entry.director(), id);
+            entry.cast().forEach(member -> cast.add(member, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer movieId, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (sequences.accept(movieId, sequence)) {
+                removeLocked(movieId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Result query(FacetFilter filter, int pageNumber, int pageSize, int facetLimit) {
+        lock.readLock().lock();
+        try {
+            //1. AND together the bitmap of every filter given; no filter at all is the whole catalogue
+            BitSet matching = (BitSet) all.clone();
+            boolean filtered = false;
+            if (filter.yearFrom() != null || filter.yearTo() != null) {
+                int from = filter.yearFrom() == null ? Integer.MIN_VALUE : filter.yearFrom();
+                int to = filter.yearTo() == null ? Integer.MAX_VALUE : filter.yearTo();
+                BitSet years = new BitSet();
+                if (from <= to) {
+                    yearBits.subMap(from, true, to, true).values().forEach(years::or);
+                }
+                matching.and(years);
+                filtered = true;
+            }
+            filtered |= studios.retain(matching, filter.studio());
+            filtered |= directors.retain(matching, filter.director());
+            filtered |= cast.retain(matching, filter.castMember());
+
+            //2. The requested page, walking set bits in id order; sized by what matched, not by what was asked for
+            int matches = matching.cardinality();
+            long skip = (long) pageNumber * pageSize;
+            List<Integer> ids = new ArrayList<>((int) Math.max(0, Math.min(pageSize, matches - skip)));
+            for (int id = matching.nextSetBit(0); id >= 0 && ids.size() < pageSize; id = matching.nextSetBit(id + 1)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    ids.add(id);
+                }
+            }
+
+            //3. Counts: the maintained totals when unfiltered, otherwise a tally over just the matches
+            Map<Integer, Integer> yearCounts = releaseYears.counts;
+            Map<String, Integer> studioCounts = studios.counts;
+            Map<String, Integer> directorCounts = directors.counts;
+            Map<String, Integer> castCounts = cast.counts;
+            if (filtered) {
+                yearCounts = new HashMap<>();
+                studioCounts = new HashMap<>();
+                directorCounts = new HashMap<>();
+                castCounts = new HashMap<>();
+                for (int id = matching.nextSetBit(0); id >= 0; id = matching.nextSetBit(id + 1)) {
+                    Entry entry = documents.get(id);
+                    yearCounts.merge(entry.releaseYear(), 1, Integer::sum);
+                    studioCounts.merge(entry.studio(), 1, Integer::sum);
+                    directorCounts.merge(entry.director(), 1, Integer::sum);
+                    for (String member : entry.cast()) {
+                        castCounts.merge(member, 1, Integer::sum);
+                    }
+                }
+            }
+            return new Result(ids, matches, new TreeMap<>(yearCounts),
+                    top(studioCounts, facetLimit), top(directorCounts, facetLimit), top(castCounts, facetLimit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //The largest counts, ties broken by value; the heap never holds more than limit of them however many values there are
+    private static List<FacetCount> top(Map<String, Integer> counts, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<FacetCount> order = Comparator.comparingInt(FacetCount::count).reversed().thenComparing(FacetCount::value);
+        PriorityQueue<FacetCount> best = new PriorityQueue<>(Math.min(limit, counts.size()) + 1, order.reversed());
+        counts.forEach((value, count) -> {
+            best.add(new FacetCount(value, count));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<FacetCount> top = new ArrayList<>(best);
+        top.sort(order);
+        return top;
+    }
+
+    private void removeLocked(Integer movieId) {
+        Entry entry = documents.remove(movieId);
+        if (entry == null) {
+            return;
+        }
+        all.clear(movieId);
+        releaseYears.remove(entry.releaseYear(), movieId);
+        studios.remove(entry.studio(), movieId);
+        directors.remove(entry.director(), movieId);
+        entry.cast().forEach(member -> cast.remove(member, movieId));
+    }
+
+    //One field's bitmaps and the running count of each, maintained together under the index lock
+    private static final class Facet<K> {
+
+        private final Map<K, BitSet> bits;
+
+        private final Map<K, Integer> counts = new HashMap<>();
+
+        private Facet(Map<K, BitSet> bits) {
+            this.bits = bits;
+        }
+
+        private void add(K value, int movieId) {
+            if (value != null) {
+                bits.computeIfAbsent(value, key -> new BitSet()).set(movieId);
+                counts.merge(value, 1, Integer::sum);
+            }
+        }
+
+        private void remove(K value, int movieId) {
+            BitSet movies = value == null ? null : bits.get(value);
+            if (movies == null) {
+                return;
+            }
+            movies.clear(movieId);
+            if (movies.isEmpty()) {
+                bits.remove(value);
+                counts.remove(value);
+            } else {
+                counts.merge(value, -1, Integer::sum);
+            }
+        }
+
+        //Narrows matching to this value; returns whether a filter was applied at all
+        private boolean retain(BitSet matching, K value) {
+            if (value == null) {
+                return false;
+            }
+            BitSet movies = bits.get(value);
+            if (movies == null) {
+                matching.clear();
+            } else {
+                matching.and(movies);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+
+/**
+ * An in-memory view of the catalogue, filled by {@link MovieIndexBuilder} and kept current by {@link MovieChangedEvent}s.
+ * Every change carries a sequence: an event's own, or for an exported row the one current when the export began.
+ * While a build runs, a change older than the last one applied to the same movie is dropped, so an exported row
+ * read before a concurrent update or delete can neither overwrite it nor bring the movie back.
+ */
+public interface MovieIndex {
+
+    void startBuild();
+
+    void finishBuild();
+
+    void put(MovieDto movie, long sequence);
+
+    void remove(Integer movieId, long sequence);
+
+    void onMovieChanged(MovieChangedEvent event);
+
+    int size();
+}
@@ -0,0 +1,71 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.service.MovieService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills every {@link MovieIndex} from one export of the catalogue, before the web server starts, so no request is
+ * ever answered from an empty index. Changes committed while the export runs reach the indexes as events, and their
+ * sequences win over the exported rows.
+ */
+@Component
+public class MovieIndexBuilder implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MovieIndexBuilder.class);
+
+    //Boot starts the web server in SMART_LIFECYCLE_PHASE - 1024; this runs before it
+    private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+
+    private final MovieService movieService;
+
+    private final List<MovieIndex> indexes;
+
+    private volatile boolean running;
+
+    public MovieIndexBuilder(@Lazy MovieService movieService, List<MovieIndex> indexes) {
+        this.movieService = movieService;
+        this.indexes = indexes;
+    }
+
+    @Override
+    public void start() {
+        long started = System.nanoTime();
+        //1. Track sequences before reading the export's own, so no event can slip in between unrecorded
+        indexes.forEach(MovieIndex::startBuild);
+        long sequence = MovieChangedEvent.currentSequence();
+        try {
+            //2. One pass over the catalogue feeds every index
+            movieService.exportAllMovies(movie -> indexes.forEach(index -> index.put(movie, sequence)));
+        } finally {
+            indexes.forEach(MovieIndex::finishBuild);
+        }
+        for (MovieIndex index : indexes) {
+            log.info("{} built with {} movies", index.getClass().getSimpleName(), index.size());
+        }
+        log.info("Movie indexes built from one export in {} ms", (System.nanoTime() - started) / 1_000_000);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
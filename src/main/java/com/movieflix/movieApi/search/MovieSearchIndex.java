@@ -0,0 +1,200 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over title, director, studio and cast.
+ * Query tokens must all match (exactly or as a prefix); movies are ranked by the summed field weights of their best matches.
+ */
+@Component
+public class MovieSearchIndex implements MovieIndex {
+
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float CAST_WEIGHT = 2f;
+    private static final float DIRECTOR_WEIGHT = 2f;
+    private static final float STUDIO_WEIGHT = 1f;
+
+    //A prefix hit is worth less than the whole word
+    private static final float PREFIX_FACTOR = 0.5f;
+
+    //token -> (movieId -> weight); sorted so prefixes are a range scan
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+
+    //movieId -> (token -> weight), needed to take a movie back out
+    private final Map<Integer, Map<String, Float>> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ChangeSequences sequences = new ChangeSequences();
+
+    @Override
+    public void startBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void finishBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.finish();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.type() == MovieChangedEvent.Type.DELETED) {
+            remove(event.movieId(), event.sequence());
+        } else {
+            put(event.movie(), event.sequence());
+        }
+    }
+
+    @Override
+    public void put(MovieDto movie, long sequence) {
+        Map<String, Float> tokens = new HashMap<>();
+        addField(tokens, movie.getTitle(), TITLE_WEIGHT);
+        addField(tokens, movie.getDirector(), DIRECTOR_WEIGHT);
+        addField(tokens, movie.getStudio(), STUDIO_WEIGHT);
+        if (movie.getMovieCast() != null) {
+            for (String member : movie.getMovieCast()) {
+                addField(tokens, member, CAST_WEIGHT);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!sequences.accept(movie.getMovieId(), sequence)) {
+                return;
+            }
+            removeLocked(movie.getMovieId());
+            documents.put(movie.getMovieId(), tokens);
+            tokens.forEach((token, weight) -> postings.computeIfAbsent(token, key -> new HashMap<>()).put(movie.getMovieId(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer movieId, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (sequences.accept(movieId, sequence)) {
+                removeLocked(movieId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} movie ids, best match first.
+     */
+    public List<Integer> search(String query, int limit) {
+        List<String> queryTokens = Tokenizer.tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Integer, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String queryToken : queryTokens) {
+                Map<Integer, Float> tokenScores = scoreToken(queryToken);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    //Every query token has to match
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + tokenScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Float>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Best score per movie for one query token, over the exact term and every term it prefixes
+    private Map<Integer, Float> scoreToken(String queryToken) {
+        Map<Integer, Float> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Float>> term : postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false).entrySet()) {
+            float factor = term.getKey().equals(queryToken) ? 1f : PREFIX_FACTOR;
+            term.getValue().forEach((movieId, weight) -> scores.merge(movieId, weight * factor, Math::max));
+        }
+        return scores;
+    }
+
+    private void addField(Map<String, Float> tokens, String text, float weight) {
+        for (String token : Tokenizer.tokenize(text)) {
+            tokens.merge(token, weight, Float::sum);
+        }
+    }
+
+    private void removeLocked(Integer movieId) {
+        Map<String, Float> tokens = documents.remove(movieId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens.keySet()) {
+            Map<Integer, Float> movies = postings.get(token);
+            if (movies != null) {
+                movies.remove(movieId);
+                if (movies.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+}
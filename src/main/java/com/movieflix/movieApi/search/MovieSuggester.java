@@ -0,0 +1,262 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.Suggestion;
+import com.movieflix.movieApi.dto.SuggesterStats;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.utils.AppConstants;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead over titles, directors and cast names.
+ * Each phrase is reachable from the start of any of its words ("reev" finds "Keanu Reeves"), and suggestions are
+ * weighted by how many movies carry the phrase plus how often those movies have been viewed.
+ */
+@Component
+public class MovieSuggester implements MovieIndex {
+
+    //Rough per-entry costs used for the footprint estimate: object headers, references and map nodes
+    private static final int KEY_OVERHEAD_BYTES = 80;
+    private static final int PHRASE_OVERHEAD_BYTES = 120;
+    private static final int MOVIE_REFERENCE_BYTES = 40;
+
+    //weight is kept up to date as movies come and go and are viewed, so ranking a candidate is one read
+    private record Phrase(String text, Suggestion.Kind kind, Set<Integer> movieIds, LongAdder weight) {
+    }
+
+    //phrase id (kind + normalized text) -> phrase
+    private final Map<String, Phrase> phrases = new HashMap<>();
+
+    //normalized word-start suffix -> phrase ids; sorted so prefixes are a range scan
+    private final NavigableMap<String, Set<String>> keys = new TreeMap<>();
+
+    //movieId -> phrase ids it contributes to
+    private final Map<Integer, Set<String>> movies = new HashMap<>();
+
+    private final Map<Integer, LongAdder> views = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ChangeSequences sequences = new ChangeSequences();
+
+    @Override
+    public void startBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void finishBuild() {
+        lock.writeLock().lock();
+        try {
+            sequences.finish();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.type() == MovieChangedEvent.Type.DELETED) {
+            remove(event.movieId(), event.sequence());
+            views.remove(event.movieId());
+        } else {
+            put(event.movie(), event.sequence());
+        }
+    }
+
+    public void recordView(Integer movieId) {
+        //Shared lock: views and phrase weights change together, but views never wait on each other
+        lock.readLock().lock();
+        try {
+            views.computeIfAbsent(movieId, id -> new LongAdder()).increment();
+            for (String phraseId : movies.getOrDefault(movieId, Set.of())) {
+                phrases.get(phraseId).weight().increment();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(MovieDto movie, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (!sequences.accept(movie.getMovieId(), sequence)) {
+                return;
+            }
+            removeLocked(movie.getMovieId());
+            Set<String> contributed = new HashSet<>();
+            addPhrase(movie.getMovieId(), movie.getTitle(), Suggestion.Kind.TITLE, contributed);
+            addPhrase(movie.getMovieId(), movie.getDirector(), Suggestion.Kind.DIRECTOR, contributed);
+            if (movie.getMovieCast() != null) {
+                for (String member : movie.getMovieCast()) {
+                    addPhrase(movie.getMovieId(), member, Suggestion.Kind.CAST, contributed);
+                }
+            }
+            movies.put(movie.getMovieId(), contributed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer movieId, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (sequences.accept(movieId, sequence)) {
+                removeLocked(movieId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Top {@code limit} phrases starting (at any word) with {@code prefix}, heaviest first; at most {@link AppConstants#MAX_SUGGEST_LIMIT}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        limit = Math.min(limit, AppConstants.MAX_SUGGEST_LIMIT);
+
+        //Min-heap of the best candidates seen so far
+        Comparator<Suggestion> byWeight = Comparator.comparingLong(Suggestion::weight).thenComparing(Suggestion::text, Comparator.reverseOrder());
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, byWeight);
+        lock.readLock().lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            for (Set<String> phraseIds : keys.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+                for (String phraseId : phraseIds) {
+                    if (!seen.add(phraseId)) {
+                        continue;
+                    }
+                    Phrase phrase = phrases.get(phraseId);
+                    best.add(new Suggestion(phrase.text(), phrase.kind(), phrase.weight().sum()));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(byWeight.reversed());
+        return suggestions;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return movies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SuggesterStats stats() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map.Entry<String, Set<String>> entry : keys.entrySet()) {
+                bytes += KEY_OVERHEAD_BYTES + entry.getKey().length() + (long) entry.getValue().size() * MOVIE_REFERENCE_BYTES;
+            }
+            for (Phrase phrase : phrases.values()) {
+                bytes += PHRASE_OVERHEAD_BYTES + 2L * phrase.text().length() + (long) phrase.movieIds().size() * MOVIE_REFERENCE_BYTES;
+            }
+            long trackedViews = views.values().stream().mapToLong(LongAdder::sum).sum();
+            return new SuggesterStats(phrases.size(), keys.size(), trackedViews, bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //What one movie adds to each of its phrases: one for carrying it, plus its views
+    private long weight(Integer movieId) {
+        LongAdder movieViews = views.get(movieId);
+        return 1 + (movieViews == null ? 0 : movieViews.sum());
+    }
+
+    private void addPhrase(Integer movieId, String text, Suggestion.Kind kind, Set<String> contributed) {
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        String phraseId = kind + ":" + normalized;
+        Phrase phrase = phrases.computeIfAbsent(phraseId, id -> {
+            for (String suffix : wordStarts(normalized)) {
+                keys.computeIfAbsent(suffix, k -> new HashSet<>()).add(id);
+            }
+            return new Phrase(text.strip(), kind, new HashSet<>(), new LongAdder());
+        });
+        if (phrase.movieIds().add(movieId)) {
+            phrase.weight().add(weight(movieId));
+        }
+        contributed.add(phraseId);
+    }
+
+    private void removeLocked(Integer movieId) {
+        Set<String> contributed = movies.remove(movieId);
+        if (contributed == null) {
+            return;
+        }
+        for (String phraseId : contributed) {
+            Phrase phrase = phrases.get(phraseId);
+            phrase.movieIds().remove(movieId);
+            phrase.weight().add(-weight(movieId));
+            if (phrase.movieIds().isEmpty()) {
+                phrases.remove(phraseId);
+                for (String suffix : wordStarts(phraseId.substring(phraseId.indexOf(':') + 1))) {
+                    Set<String> phraseIds = keys.get(suffix);
+                    phraseIds.remove(phraseId);
+                    if (phraseIds.isEmpty()) {
+                        keys.remove(suffix);
+                    }
+                }
+            }
+        }
+    }
+
+    //"keanu reeves" -> ["keanu reeves", "reeves"]
+    private static List<String> wordStarts(String normalized) {
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            suffixes.add(normalized.substring(i + 1));
+        }
+        return suffixes;
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", Tokenizer.tokenize(text));
+    }
+}
@@ -0,0 +1,23 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.dto.BulkIngestResponse;
+import com.movieflix.movieApi.dto.BulkMutationResponse;
+import com.movieflix.movieApi.dto.MovieDto;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+public interface BulkMovieService {
+    BulkIngestResponse addMovies(MultipartFile manifest, MultipartFile posters) throws IOException;
+
+    //archive is a zip already on local disk; the caller owns it and deletes it afterwards
+    BulkIngestResponse addMovies(InputStream manifest, Path archive) throws IOException;
+
+    //Replaces the details of existing movies, keeping their posters; the whole batch is one transaction
+    BulkMutationResponse updateMovies(List<MovieDto> movies);
+
+    BulkMutationResponse deleteMovies(List<Integer> movieIds) throws IOException;
+}
@@ -0,0 +1,403 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.BulkIngestResponse;
+import com.movieflix.movieApi.dto.BulkItemResult;
+import com.movieflix.movieApi.dto.BulkMutationResponse;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.exceptions.BatchTooLargeException;
+import com.movieflix.movieApi.mappers.MovieMapper;
+import com.movieflix.movieApi.repositories.MovieBatchRepository;
+import com.movieflix.movieApi.repositories.MovieBatchRepository.LockedMovie;
+import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.utils.AppConstants;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@Service
+@Timed("movieflix.service")
+public class BulkMovieServiceImpl implements BulkMovieService {
+
+    //Rows per JDBC batch and per transaction
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    private final MovieBatchRepository movieBatchRepository;
+
+    private final MovieRepository movieRepository;
+
+    private final FileService fileService;
+
+    private final MovieMapper movieMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ThreadPoolTaskExecutor posterWriteExecutor;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final CatalogueVersion catalogueVersion;
+
+    public BulkMovieServiceImpl(MovieBatchRepository movieBatchRepository, MovieRepository movieRepository, FileService fileService, MovieMapper movieMapper,
+                                TransactionTemplate transactionTemplate, @Qualifier("posterWriteExecutor") ThreadPoolTaskExecutor posterWriteExecutor,
+                                ApplicationEventPublisher eventPublisher, CatalogueVersion catalogueVersion) {
+        this.movieBatchRepository = movieBatchRepository;
+        this.movieRepository = movieRepository;
+        this.fileService = fileService;
+        this.movieMapper = movieMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.posterWriteExecutor = posterWriteExecutor;
+        this.eventPublisher = eventPublisher;
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    @Value("${project.poster}")
+    private String path;
+
+    @Override
+    public BulkIngestResponse addMovies(MultipartFile manifest, MultipartFile posters) throws IOException {
+        //Spool the archive to disk so its entries can be read by several writers at once
+        Path archive = Files.createTempFile("posters-", ".zip");
+        try (InputStream content = manifest.getInputStream()) {
+            posters.transferTo(archive);
+            return addMovies(content, archive);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    @Override
+    public BulkIngestResponse addMovies(InputStream manifest, Path archive) throws IOException {
+        long started = System.nanoTime();
+
+        //1. Read the manifest, a JSON array of movies whose poster field names an entry in the archive
+        List<MovieDto> movieDtos = movieMapper.readDtos(manifest);
+        BulkItemResult[] results = new BulkItemResult[movieDtos.size()];
+
+        //2. Open the spooled archive
+        List<Integer> written = new ArrayList<>();
+        List<String> pinned = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            Map<String, ZipEntry> entries = indexEntries(zip);
+
+            //3. Validate every item and hand each distinct poster to the writer pool once
+            Map<Integer, Future<String>> writes = new LinkedHashMap<>();
+            Map<String, Future<String>> entryWrites = new LinkedHashMap<>();
+            for (int i = 0; i < movieDtos.size(); i++) {
+                MovieDto dto = movieDtos.get(i);
+                String problem = validate(dto, entries);
+                if (problem != null) {
+                    results[i] = failed(i, dto, problem);
+                    continue;
+                }
+                String oversized = oversizedField(dto);
+                if (oversized != null) {
+                    results[i] = rejected(i, dto, oversized);
+                    continue;
+                }
+                ZipEntry entry = entries.get(dto.getPoster());
+                writes.put(i, entryWrites.computeIfAbsent(dto.getPoster(), name -> posterWriteExecutor.submit(() -> {
+                    try (InputStream content = zip.getInputStream(entry)) {
+                        return fileService.storeFile(path, name, content, null);
+                    }
+                })));
+            }
+
+            //4. Wait for the writes; only movies whose poster landed go on to the database, under its stored name
+            for (Future<String> write : entryWrites.values()) {
+                try {
+                    pinned.add(write.get());
+                } catch (ExecutionException ex) {
+                    //reported per item below
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing posters", ex);
+                }
+            }
+            for (Map.Entry<Integer, Future<String>> write : writes.entrySet()) {
+                int i = write.getKey();
+                try {
+                    movieDtos.get(i).setPoster(write.getValue().get());
+                    written.add(i);
+                } catch (ExecutionException ex) {
+                    results[i] = failed(i, movieDtos.get(i), "Poster could not be written: " + ex.getCause().getMessage());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing posters", ex);
+                }
+            }
+        }
+
+        //5. Insert movies and cast in JDBC batches, one transaction per chunk
+        Set<String> rolledBack = new HashSet<>();
+        int inserted = 0;
+        for (int from = 0; from < written.size(); from += INSERT_CHUNK_SIZE) {
+            List<Integer> chunk = written.subList(from, Math.min(from + INSERT_CHUNK_SIZE, written.size()));
+            List<MovieDto> chunkDtos = chunk.stream().map(movieDtos::get).toList();
+            try {
+                List<Integer> ids = transactionTemplate.execute(status -> movieBatchRepository.insertMovies(chunkDtos));
+                for (int k = 0; k < chunk.size(); k++) {
+                    int i = chunk.get(k);
+                    MovieDto dto = movieDtos.get(i);
+                    results[i] = new BulkItemResult(i, dto.getTitle(), dto.getPoster(), ids.get(k), BulkItemResult.Status.CREATED, null);
+                    eventPublisher.publishEvent(MovieChangedEvent.saved(movieMapper.toDto(ids.get(k), dto)));
+                }
+                inserted += chunk.size();
+            } catch (DataAccessException ex) {
+                //The whole chunk rolled back, so its posters may now be orphans
+                for (int i : chunk) {
+                    MovieDto dto = movieDtos.get(i);
+                    rolledBack.add(dto.getPoster());
+                    results[i] = failed(i, dto, "Movie could not be saved: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        //Nothing written leaves every cached listing and ETag valid
+        if (inserted > 0) {
+            catalogueVersion.advance();
+        }
+
+        //6. Unpin what this ingest stored, then drop posters that nothing ended up referencing
+        pinned.forEach(fileService::unpinFile);
+        for (String poster : rolledBack) {
+            fileService.releaseFile(path, poster, () -> movieRepository.countByPoster(poster));
+        }
+
+        //7. Report per-item results and throughput
+        long elapsedNanos = System.nanoTime() - started;
+        int created = (int) Arrays.stream(results).filter(result -> result.status() == BulkItemResult.Status.CREATED).count();
+        double moviesPerSecond = elapsedNanos == 0 ? 0 : created * 1_000_000_000d / elapsedNanos;
+        return new BulkIngestResponse(movieDtos.size(), created, movieDtos.size() - created,
+                elapsedNanos / 1_000_000, moviesPerSecond, Arrays.asList(results));
+    }
+
+    @Override
+    public BulkMutationResponse updateMovies(List<MovieDto> movieDtos) {
+        long started = System.nanoTime();
+        checkBatchSize(movieDtos.size());
+        BulkItemResult[] results = new BulkItemResult[movieDtos.size()];
+
+        //1. Validate every item; a movie may only be named once per batch
+        Map<Integer, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < movieDtos.size(); i++) {
+            MovieDto dto = movieDtos.get(i);
+            String problem = dto.getMovieId() == null ? "Please provide movie's movieId!" : missingDetails(dto);
+            if (problem != null) {
+                results[i] = failed(i, dto, problem);
+                continue;
+            }
+            String oversized = oversizedField(dto);
+            if (oversized != null) {
+                results[i] = rejected(i, dto, oversized);
+            } else if (indexById.putIfAbsent(dto.getMovieId(), i) != null) {
+                results[i] = failed(i, dto, "Movie " + dto.getMovieId() + " appears more than once in the batch");
+            }
+        }
+
+        //2. One transaction: lock every target with one select, then rewrite the ones that exist in JDBC batches
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Integer, LockedMovie> existing = movieBatchRepository.lockMovies(indexById.keySet());
+                List<MovieDto> found = new ArrayList<>(existing.size());
+                for (int i : indexById.values()) {
+                    MovieDto dto = movieDtos.get(i);
+                    LockedMovie movie = existing.get(dto.getMovieId());
+                    if (movie == null) {
+                        results[i] = notFound(i, dto.getMovieId());
+                        continue;
+                    }
+                    //Posters are replaced through the single-movie update, which takes the upload
+                    dto.setPoster(movie.poster());
+                    found.add(dto);
+                    results[i] = new BulkItemResult(i, dto.getTitle(), dto.getPoster(), dto.getMovieId(), BulkItemResult.Status.UPDATED, null);
+                }
+                if (!found.isEmpty()) {
+                    movieBatchRepository.updateMovies(found);
+                }
+            });
+        } catch (DataAccessException ex) {
+            for (int i : indexById.values()) {
+                results[i] = failed(i, movieDtos.get(i), "Movie could not be saved: " + ex.getMostSpecificCause().getMessage());
+            }
+        }
+
+        //3. Committed, so in-memory views can follow
+        boolean updated = false;
+        for (BulkItemResult result : results) {
+            if (result.status() == BulkItemResult.Status.UPDATED) {
+                MovieDto dto = movieDtos.get(result.index());
+                eventPublisher.publishEvent(MovieChangedEvent.saved(movieMapper.toDto(dto.getMovieId(), dto)));
+                updated = true;
+            }
+        }
+        if (updated) {
+            catalogueVersion.advance();
+        }
+        return mutationResponse(results, BulkItemResult.Status.UPDATED, started);
+    }
+
+    @Override
+    public BulkMutationResponse deleteMovies(List<Integer> movieIds) throws IOException {
+        long started = System.nanoTime();
+        checkBatchSize(movieIds.size());
+        BulkItemResult[] results = new BulkItemResult[movieIds.size()];
+
+        //1. A movie may only be named once per batch
+        Map<Integer, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < movieIds.size(); i++) {
+            Integer id = movieIds.get(i);
+            if (id == null || indexById.putIfAbsent(id, i) != null) {
+                results[i] = new BulkItemResult(i, null, null, id, BulkItemResult.Status.FAILED,
+                        id == null ? "Please provide movie's movieId!" : "Movie " + id + " appears more than once in the batch");
+            }
+        }
+
+        //2. One transaction: lock every target with one select, then delete the ones that exist in JDBC batches
+        List<String> orphaned = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Integer, LockedMovie> existing = movieBatchRepository.lockMovies(indexById.keySet());
+                for (Map.Entry<Integer, Integer> target : indexById.entrySet()) {
+                    int i = target.getValue();
+                    LockedMovie movie = existing.get(target.getKey());
+                    results[i] = movie == null ? notFound(i, target.getKey())
+                            : new BulkItemResult(i, movie.title(), movie.poster(), movie.movieId(), BulkItemResult.Status.DELETED, null);
+                }
+                if (!existing.isEmpty()) {
+                    movieBatchRepository.deleteMovies(existing.keySet());
+                    existing.values().forEach(movie -> orphaned.add(movie.poster()));
+                }
+            });
+        } catch (DataAccessException ex) {
+            orphaned.clear();
+            for (Map.Entry<Integer, Integer> target : indexById.entrySet()) {
+                results[target.getValue()] = new BulkItemResult(target.getValue(), null, null, target.getKey(), BulkItemResult.Status.FAILED,
+                        "Movie could not be deleted: " + ex.getMostSpecificCause().getMessage());
+            }
+        }
+
+        //3. Poster files only go once the deletes have committed; a rollback must never leave movies pointing at missing files.
+        //One query rules out posters still shared; the rest are counted again under the pin lock before they are deleted
+        Map<String, Long> references = movieBatchRepository.countPosterReferences(new HashSet<>(orphaned));
+        for (String poster : new HashSet<>(orphaned)) {
+            if (references.getOrDefault(poster, 0L) == 0) {
+                fileService.releaseFile(path, poster, () -> movieRepository.countByPoster(poster));
+            }
+        }
+        boolean deleted = false;
+        for (BulkItemResult result : results) {
+            if (result.status() == BulkItemResult.Status.DELETED) {
+                eventPublisher.publishEvent(MovieChangedEvent.deleted(result.movieId()));
+                deleted = true;
+            }
+        }
+        if (deleted) {
+            catalogueVersion.advance();
+        }
+        return mutationResponse(results, BulkItemResult.Status.DELETED, started);
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > AppConstants.MAX_MUTATION_BATCH) {
+            throw new BatchTooLargeException("A batch may hold at most " + AppConstants.MAX_MUTATION_BATCH + " movies, got " + size);
+        }
+    }
+
+    private BulkMutationResponse mutationResponse(BulkItemResult[] results, BulkItemResult.Status success, long started) {
+        int succeeded = (int) Arrays.stream(results).filter(result -> result.status() == success).count();
+        return new BulkMutationResponse(results.length, succeeded, results.length - succeeded,
+                (System.nanoTime() - started) / 1_000_000, Arrays.asList(results));
+    }
+
+    private BulkItemResult notFound(int index, Integer movieId) {
+        return new BulkItemResult(index, null, null, movieId, BulkItemResult.Status.NOT_FOUND, "Movie Not Found with id = " + movieId);
+    }
+
+    //Entries are looked up by file name only, so folders inside the archive don't matter
+    private Map<String, ZipEntry> indexEntries(ZipFile zip) {
+        Map<String, ZipEntry> entries = new HashMap<>();
+        Enumeration<? extends ZipEntry> all = zip.entries();
+        while (all.hasMoreElements()) {
+            ZipEntry entry = all.nextElement();
+            if (!entry.isDirectory()) {
+                entries.put(StringUtils.getFilename(entry.getName()), entry);
+            }
+        }
+        return entries;
+    }
+
+    private String validate(MovieDto dto, Map<String, ZipEntry> entries) {
+        String missing = missingDetails(dto);
+        if (missing != null) {
+            return missing;
+        }
+        if (!StringUtils.hasText(dto.getPoster()) || !entries.containsKey(dto.getPoster())) {
+            return "Poster " + dto.getPoster() + " is not in the archive";
+        }
+        return null;
+    }
+
+    private String missingDetails(MovieDto dto) {
+        if (!StringUtils.hasText(dto.getTitle()) || !StringUtils.hasText(dto.getDirector())
+                || !StringUtils.hasText(dto.getStudio()) || dto.getReleaseYear() == null) {
+            return "Please provide movie's title, director, studio and releaseYear!";
+        }
+        return null;
+    }
+
+    //A row wider than its column would fail the whole JDBC batch, taking every valid row in it down too
+    private String oversizedField(MovieDto dto) {
+        if (dto.getTitle().length() > AppConstants.MAX_TITLE_LENGTH) {
+            return "Title is longer than " + AppConstants.MAX_TITLE_LENGTH + " characters";
+        }
+        if (dto.getDirector().length() > AppConstants.MAX_TEXT_LENGTH) {
+            return "Director is longer than " + AppConstants.MAX_TEXT_LENGTH + " characters";
+        }
+        if (dto.getStudio().length() > AppConstants.MAX_TEXT_LENGTH) {
+            return "Studio is longer than " + AppConstants.MAX_TEXT_LENGTH + " characters";
+        }
+        if (dto.getMovieCast() != null) {
+            for (String member : dto.getMovieCast()) {
+                if (member != null && member.length() > AppConstants.MAX_TEXT_LENGTH) {
+                    return "Cast member is longer than " + AppConstants.MAX_TEXT_LENGTH + " characters";
+                }
+            }
+        }
+        return null;
+    }
+
+    private BulkItemResult rejected(int index, MovieDto dto, String message) {
+        return new BulkItemResult(index, dto.getTitle(), dto.getPoster(), null, BulkItemResult.Status.REJECTED, message);
+    }
+
+    private BulkItemResult failed(int index, MovieDto dto, String message) {
+        return new BulkItemResult(index, dto.getTitle(), dto.getPoster(), null, BulkItemResult.Status.FAILED, message);
+    }
+}
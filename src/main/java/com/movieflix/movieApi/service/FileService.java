@@ -5,10 +5,30 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.LongSupplier;
 
 public interface FileService {
-    String uploadFile(String path, MultipartFile file) throws IOException;
 
-    InputStream getResourceFile(String path,String filename) throws FileNotFoundException;
+    /**
+     * Stores the upload under its content address and returns that name.
+     * The returned poster is pinned against {@link #releaseFile} until {@link #unpinFile} is called,
+     * so callers must unpin once the row referencing it is committed (or has failed).
+     * When {@code checksum} (hex SHA-256) is given, an upload whose bytes don't match it is rejected and nothing is kept.
+     */
+    String uploadFile(String path, MultipartFile file, String checksum) throws IOException;
+
+    String storeFile(String path, String filename, InputStream content, String checksum) throws IOException;
+
+    void unpinFile(String filename);
+
+    Path getResourcePath(String path, String filename) throws FileNotFoundException;
+
+    /**
+     * Deletes the poster only when no upload has it pinned and no movie references it any more.
+     * {@code references} is only counted once the poster's lock is held, so an upload that pins, commits its row and unpins
+     * in between is still seen.
+     */
+    void releaseFile(String path, String filename, LongSupplier references) throws IOException;
 
 }
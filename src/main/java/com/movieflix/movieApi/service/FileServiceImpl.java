@@ -1,37 +1,256 @@
 package com.movieflix.movieApi.service;
 
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.exceptions.ChecksumMismatchException;
+import com.movieflix.movieApi.exceptions.PosterTooLargeException;
+import com.movieflix.movieApi.metrics.PosterMetrics;
+import com.movieflix.movieApi.utils.PosterPaths;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 
+/**
+ * Posters are stored once per distinct content, named by the SHA-256 of their bytes plus the original extension.
+ * Movies reference that name, and a blob is only deleted when the last movie referencing it lets go.
+ */
 @Service
+@Timed("movieflix.service")
 public class FileServiceImpl implements FileService {
+
+    //Uploads are spooled here first so the final move into a shard is a same-filesystem rename
+    private static final String INCOMING_DIRECTORY = ".incoming";
+
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    private final PosterCache posterCache;
+
+    private final PosterVariantService posterVariantService;
+
+    private final PosterMetrics posterMetrics;
+
+    //poster -> number of uploads that stored or found it and have not committed their movie row yet
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    //poster -> lock held while its pins change or its references are counted; an entry lives only while someone holds or waits for it
+    private final Map<String, NameLock> nameLocks = new ConcurrentHashMap<>();
+
+    private static final class NameLock extends ReentrantLock {
+        //Changed only inside nameLocks.compute, which serialises it per name
+        private int users;
+    }
+
+    private interface Locked<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    public FileServiceImpl(PosterCache posterCache, PosterVariantService posterVariantService, PosterMetrics posterMetrics) {
+        this.posterCache = posterCache;
+        this.posterVariantService = posterVariantService;
+        this.posterMetrics = posterMetrics;
+    }
+
+    @Value("${project.poster}")
+    private String posterPath;
+
+    @Value("${project.poster-upload.max-size:20MB}")
+    private DataSize maxSize;
+
+    @Value("${project.poster-upload.buffer-size:64KB}")
+    private DataSize bufferSize;
+
+    @Value("${project.poster-upload.stale-after:1h}")
+    private Duration staleAfter;
+
     @Override
-    public String uploadFile(String path, MultipartFile file) throws IOException {
+    public String uploadFile(String path, MultipartFile file, String checksum) throws IOException {
+        if(file.getSize()>maxSize.toBytes()){
+            throw new PosterTooLargeException("Poster is larger than "+maxSize);
+        }
+        try(InputStream content=file.getInputStream()){
+            return storeFile(path,file.getOriginalFilename(),content,checksum);
+        }
+    }
 
-        String filename=file.getOriginalFilename();
+    @Override
+    public String storeFile(String path, String filename, InputStream content, String checksum) throws IOException {
+        long started=System.nanoTime();
+        String outcome="failed";
+        long written=0;
+        Path base=Paths.get(path).toAbsolutePath().normalize();
+
+        //1. Stream the upload to a temp file through one fixed-size buffer, hashing it on the way through
+        Path incoming=Files.createDirectories(base.resolve(INCOMING_DIRECTORY));
+        Path temp=Files.createTempFile(incoming,"upload-",".tmp");
+        try{
+            MessageDigest digest=sha256();
+            written=writeBounded(content,temp,digest);
+            String hash=HexFormat.of().formatHex(digest.digest());
+            if(checksum!=null && !checksum.isBlank() && !hash.equalsIgnoreCase(checksum.strip())){
+                outcome="checksum_mismatch";
+                throw new ChecksumMismatchException("Poster checksum does not match! Expected "+checksum.strip()+" but received "+hash);
+            }
+            String name=hash+extension(filename);
+            Path file=PosterPaths.resolve(base,name);
 
-        String filepath=path + File.separator +filename;
+            //2. Pin before looking, so a concurrent release can't delete the blob we are about to reuse
+            withNameLock(name,()->pins.merge(name,1,Integer::sum));
+            try{
+                if(Files.exists(file)){
+                    outcome="duplicate";
+                    return name;
+                }
+                //3. New content: move it into its shard; a racing upload of the same bytes just renames over it
+                Files.createDirectories(file.getParent());
+                Files.move(temp,file,StandardCopyOption.ATOMIC_MOVE);
+            }catch (IOException | RuntimeException ex){
+                unpinFile(name);
+                throw ex;
+            }
 
-        //Create a File object
-        File f=new File(path);
+            //Thumbnails and compressed copies are rendered in the background
+            posterVariantService.scheduleVariants(path,name);
+            outcome="stored";
+            return name;
+        }catch (PosterTooLargeException ex){
+            outcome="too_large";
+            throw ex;
+        }finally {
+            posterMetrics.uploaded(outcome,written,started);
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        if(!f.exists()) {
-            f.mkdir();
+    //Temp files left behind by a crash mid-upload; anything this old is no longer being written
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepIncoming() throws IOException {
+        Path incoming=Paths.get(posterPath).toAbsolutePath().normalize().resolve(INCOMING_DIRECTORY);
+        if(!Files.isDirectory(incoming)){
+            return;
+        }
+        Instant cutoff=Instant.now().minus(staleAfter);
+        try(DirectoryStream<Path> files=Files.newDirectoryStream(incoming)){
+            for(Path file: files){
+                if(Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)){
+                    Files.deleteIfExists(file);
+                }
+            }
         }
+    }
+
+    @Override
+    public void unpinFile(String filename) {
+        withNameLock(filename,()->pins.computeIfPresent(filename,(name,pinned)->pinned==1?null:pinned-1));
+    }
 
-        //copy the file or upload file to the path
-        Files.copy(file.getInputStream(), Paths.get(filepath));
-        return filename;
+    @Override
+    public Path getResourcePath(String path, String filename) throws FileNotFoundException {
+        Path base=Paths.get(path).toAbsolutePath().normalize();
+        Path file=PosterPaths.resolve(base,filename).normalize();
+
+        //Never serve anything outside the poster directory
+        if(!file.startsWith(base) || !Files.isRegularFile(file)){
+            throw new FileNotFoundException("File Not Found with name = "+filename);
+        }
+        return file;
     }
 
     @Override
-    public InputStream getResourceFile(String path, String filename) throws FileNotFoundException {
-        String filepath=path+ File.separator+ filename;
-        return new FileInputStream(filepath);
+    public void releaseFile(String path, String filename, LongSupplier references) throws IOException {
+        Path base=Paths.get(path).toAbsolutePath().normalize();
+        Path file=PosterPaths.resolve(base,filename).normalize();
+        if(!file.startsWith(base)){
+            return;
+        }
+
+        //Counting and deleting under the name's lock means no upload can pin it, or commit a row and unpin it, between the
+        //check and the delete; uploads of other posters never wait on this query
+        boolean deleted=withNameLock(filename,()->
+                !pins.containsKey(filename) && references.getAsLong()==0 && Files.deleteIfExists(file));
+        if(deleted){
+            posterCache.invalidate(filename);
+            posterVariantService.deleteVariants(path,filename);
+        }
+    }
+
+    private <T, E extends Exception> T withNameLock(String name, Locked<T, E> action) throws E {
+        NameLock lock=nameLocks.compute(name,(key,held)->{
+            NameLock used=held==null?new NameLock():held;
+            used.users++;
+            return used;
+        });
+        lock.lock();
+        try{
+            return action.run();
+        }finally {
+            lock.unlock();
+            nameLocks.computeIfPresent(name,(key,held)->--held.users==0?null:held);
+        }
+    }
+
+    //Copies until the limit is crossed, then gives up; the data is forced to disk before it can be renamed into place
+    private long writeBounded(InputStream content, Path temp, MessageDigest digest) throws IOException {
+        byte[] buffer=new byte[(int) bufferSize.toBytes()];
+        long limit=maxSize.toBytes();
+        long written=0;
+        try(FileChannel out=FileChannel.open(temp,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)){
+            int read;
+            while((read=content.read(buffer))!=-1){
+                written+=read;
+                if(written>limit){
+                    throw new PosterTooLargeException("Poster is larger than "+maxSize);
+                }
+                digest.update(buffer,0,read);
+                ByteBuffer chunk=ByteBuffer.wrap(buffer,0,read);
+                while(chunk.hasRemaining()){
+                    out.write(chunk);
+                }
+            }
+            out.force(false);
+        }
+        return written;
+    }
+
+    //Keeps the original extension so the content type can still be told from the name
+    private String extension(String filename) {
+        String extension=StringUtils.getFilenameExtension(filename);
+        if(extension==null){
+            return "";
+        }
+        extension=extension.toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches()?"."+extension:"";
+    }
+
+    private MessageDigest sha256() {
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        }catch (NoSuchAlgorithmException ex){
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
 }
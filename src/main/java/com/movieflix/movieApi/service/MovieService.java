@@ -1,24 +1,43 @@
 package com.movieflix.movieApi.service;
 
+import com.movieflix.movieApi.dto.FacetFilter;
 import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.MovieFacetResponse;
 import com.movieflix.movieApi.dto.MoviePageResponse;
+import com.movieflix.movieApi.dto.MovieScrollResponse;
+import com.movieflix.movieApi.dto.MovieSearchResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MovieService {
-    MovieDto addMovie(MovieDto movieDto, MultipartFile file) throws IOException;
+    MovieDto addMovie(MovieDto movieDto, MultipartFile file, String checksum) throws IOException;
+
+    MovieDto addMovie(MovieDto movieDto, String filename, InputStream poster, String checksum) throws IOException;
 
     MovieDto getMovie(Integer movieId);
 
     List<MovieDto> getAllMovies();
 
-    MovieDto updateMovie(Integer movieId, MovieDto movieDto,MultipartFile file) throws IOException;
+    void exportAllMovies(Consumer<MovieDto> consumer);
+
+    MovieDto updateMovie(Integer movieId, MovieDto movieDto,MultipartFile file, String checksum) throws IOException;
+
+    //poster may be null to keep the current one
+    MovieDto updateMovie(Integer movieId, MovieDto movieDto, String filename, InputStream poster, String checksum) throws IOException;
 
     String deleteMovie(Integer movieId) throws IOException;
 
     MoviePageResponse getAllMoviesWithPagination(Integer pageNumber,Integer pageSize);
 
     MoviePageResponse getAllMoviesWithPagination(Integer pageNumber,Integer pageSize,String sortBy,String dir);
+
+    MovieScrollResponse getAllMoviesWithScroll(String cursor,Integer pageSize,String sortBy,String dir,boolean withTotal);
+
+    MovieSearchResponse searchMovies(String query,Integer limit);
+
+    MovieFacetResponse browseMovies(FacetFilter filter,Integer pageNumber,Integer pageSize,Integer facetLimit);
 }
@@ -1,216 +1,262 @@
 package com.movieflix.movieApi.service;
 
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.FacetFilter;
 import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.MovieFacetResponse;
 import com.movieflix.movieApi.dto.MoviePageResponse;
+import com.movieflix.movieApi.dto.MovieScrollResponse;
+import com.movieflix.movieApi.dto.MovieSearchResponse;
 import com.movieflix.movieApi.entities.Movie;
-import com.movieflix.movieApi.exceptions.FileExistsException;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.exceptions.InvalidCursorException;
+import com.movieflix.movieApi.exceptions.InvalidSortFieldException;
 import com.movieflix.movieApi.exceptions.MovieNotFoundException;
+import com.movieflix.movieApi.mappers.MovieMapper;
 import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.repositories.MovieRow;
+import com.movieflix.movieApi.search.MovieFacetIndex;
+import com.movieflix.movieApi.search.MovieSearchIndex;
+import com.movieflix.movieApi.snapshot.MovieCatalogue;
+import com.movieflix.movieApi.utils.AppConstants;
+import com.movieflix.movieApi.utils.ScrollCursor;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("movieflix.service")
 public class MovieServiceImpl implements MovieService{
 
     private final MovieRepository movieRepository;
 
     private final FileService fileService;
 
+    private final MovieSearchIndex movieSearchIndex;
 
-    public MovieServiceImpl(MovieRepository movieRepository, FileService fileService) {
+    private final MovieFacetIndex movieFacetIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final MovieMapper movieMapper;
+
+    private final MovieCatalogue movieCatalogue;
+
+    private final CatalogueVersion catalogueVersion;
+
+    //Reads that the catalogue snapshot can answer only open a transaction, and so take a connection, when it can't
+    private final TransactionTemplate readOnlyTransaction;
+
+
+    public MovieServiceImpl(MovieRepository movieRepository, FileService fileService,
+                            MovieSearchIndex movieSearchIndex, MovieFacetIndex movieFacetIndex, ApplicationEventPublisher eventPublisher, MovieMapper movieMapper,
+                            MovieCatalogue movieCatalogue, CatalogueVersion catalogueVersion, PlatformTransactionManager transactionManager) {
         this.movieRepository = movieRepository;
         this.fileService = fileService;
+        this.movieSearchIndex = movieSearchIndex;
+        this.movieFacetIndex = movieFacetIndex;
+        this.eventPublisher = eventPublisher;
+        this.movieMapper = movieMapper;
+        this.movieCatalogue = movieCatalogue;
+        this.catalogueVersion = catalogueVersion;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Value("${project.poster}")
     private String path;
 
-    @Value("${base.url}")
-    private String baseUrl;
+    @Override
+    @CacheEvict(cacheNames = {"movieLists", "moviePages"}, allEntries = true)
+    public MovieDto addMovie(MovieDto movieDto, MultipartFile file, String checksum) throws IOException {
+        try(InputStream poster=file.getInputStream()){
+            return addMovie(movieDto,file.getOriginalFilename(),poster,checksum);
+        }
+    }
 
     @Override
-    public MovieDto addMovie(MovieDto movieDto, MultipartFile file) throws IOException {
+    @CacheEvict(cacheNames = {"movieLists", "moviePages"}, allEntries = true)
+    public MovieDto addMovie(MovieDto movieDto, String filename, InputStream poster, String checksum) throws IOException {
 
-        if(Files.exists(Paths.get(path + File.separator+file.getOriginalFilename()))){
-            throw new FileExistsException("File Already Exists! Please enter another file name");
-        }
-        //First upload the file, so that we can get a filename
-        String uploadedFileName=fileService.uploadFile(path,file);
+        //First upload the file, so that we can get a filename; identical posters are stored once
+        String uploadedFileName=fileService.storeFile(path,filename,poster,checksum);
 
         //Now set the value of field poster as filename
         movieDto.setPoster(uploadedFileName);
 
         //Map MovieDto to Movie object since our db only accepts Movie object
-        Movie movie=new Movie(
-                null,
-                movieDto.getTitle(),
-                movieDto.getDirector(),
-                movieDto.getStudio(),
-                movieDto.getMovieCast(),
-                movieDto.getReleaseYear(),
-                movieDto.getPoster()
-        );
-
-        //Save the Movie object
-        Movie savedMovie=movieRepository.save(movie);
-
-        //Generate the posterurl and set it
-        String posterUrl= baseUrl +"/file/"+uploadedFileName;
-
-        //Map  and return this movieDTO
-        MovieDto response =new MovieDto(
-                savedMovie.getMovieId(),
-                savedMovie.getTitle(),
-                savedMovie.getDirector(),
-                savedMovie.getStudio(),
-                savedMovie.getMovieCast(),
-                savedMovie.getReleaseYear(),
-                savedMovie.getPoster(),
-                posterUrl
-        );
+        Movie movie=movieMapper.toEntity(null,movieDto);
+
+        //Save the Movie object; if that fails the poster may be left with no one referencing it
+        Movie savedMovie;
+        try{
+            savedMovie=movieRepository.save(movie);
+        }catch (RuntimeException ex){
+            fileService.unpinFile(uploadedFileName);
+            releasePoster(uploadedFileName);
+            throw ex;
+        }
+        fileService.unpinFile(uploadedFileName);
+
+        //Map  and return this movieDTO, with its posterurl
+        MovieDto response =movieMapper.toDto(savedMovie);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(response));
+        catalogueVersion.advance();
         return response;
     }
 
     @Override
+    //Versioned like the listings: the write that changes a movie advances the version once it has committed
+    @Cacheable(cacheNames = "movies", key = "{@catalogueVersion.current(), #movieId}")
     public MovieDto getMovie(Integer movieId) {
+        //Served from the mapped snapshot when there is one, without touching the database
+        if(movieCatalogue.isAvailable()){
+            return movieMapper.toDto(movieCatalogue.find(movieId).orElseThrow(()->new MovieNotFoundException("Movie Not Found with id = "+movieId)));
+        }
 
-        //1. Check the data in Db if it exists and fetch the data of given ID
-        Movie movie= movieRepository.findById(movieId).orElseThrow(()->new MovieNotFoundException("Movie Not Found with id = "+movieId));
-
-        //2. Generate Posterurl
-        String posterUrl= baseUrl +"/file/"+movie.getPoster();
-
-        //3. Map to movie DTO obejct and return
-        MovieDto response=new MovieDto(
-                movie.getMovieId(),
-                movie.getTitle(),
-                movie.getDirector(),
-                movie.getStudio(),
-                movie.getMovieCast(),
-                movie.getReleaseYear(),
-                movie.getPoster(),
-                posterUrl
-        );
-        return response;
+        return readOnlyTransaction.execute(status->{
+            //1. Check the data in Db if it exists and fetch the data of given ID
+            Movie movie= movieRepository.findById(movieId).orElseThrow(()->new MovieNotFoundException("Movie Not Found with id = "+movieId));
+
+            //2. Map to movie DTO obejct, generating the posterurl, and return
+            return movieMapper.toDto(movie);
+        });
     }
 
     @Override
+    @Cacheable(cacheNames = "movieLists", key = "{@catalogueVersion.current(), 'all'}")
     public List<MovieDto> getAllMovies() {
-        //1. Fetch all the data from db
-        List<Movie> movies=movieRepository.findAll();
-        //2. Iterate throught the list and generate poster url for each movie object and map to movie Dto object
-        List<MovieDto> movieDtos=new ArrayList<>();
-
-        for(Movie movie: movies){
-            String posterUrl= baseUrl +"/file/"+movie.getPoster();
-            MovieDto response=new MovieDto(
-                    movie.getMovieId(),
-                    movie.getTitle(),
-                    movie.getDirector(),
-                    movie.getStudio(),
-                    movie.getMovieCast(),
-                    movie.getReleaseYear(),
-                    movie.getPoster(),
-                    posterUrl
-            );
-            movieDtos.add(response);
+        //1. Fetch all the data as flat rows, cast included, from the snapshot or else the db
+        List<MovieRow> movies;
+        if(movieCatalogue.isAvailable()){
+            movies=new ArrayList<>();
+            movieCatalogue.forEach(movies::add);
+        }else{
+            movies=readOnlyTransaction.execute(status->movieRepository.findAllRows());
         }
-        return movieDtos;
+        //2. Map every row to a movie Dto object with its poster url
+        return movieMapper.rowsToDtos(movies);
+    }
+
+    @Override
+    public void exportAllMovies(Consumer<MovieDto> consumer) {
+        if(movieCatalogue.isAvailable()){
+            movieCatalogue.forEach(row->consumer.accept(movieMapper.toDto(row)));
+            return;
+        }
+        //Rows are not managed, so nothing accumulates in the persistence context however long the export runs
+        readOnlyTransaction.executeWithoutResult(status->{
+            try(Stream<MovieRow> movies=movieRepository.streamAllRows()){
+                movies.forEach(row->consumer.accept(movieMapper.toDto(row)));
+            }
+        });
     }
 
     @Override
-    public MovieDto updateMovie(Integer movieId, MovieDto movieDto, MultipartFile file) throws IOException {
+    @CacheEvict(cacheNames = {"movieLists", "moviePages"}, allEntries = true)
+    public MovieDto updateMovie(Integer movieId, MovieDto movieDto, MultipartFile file, String checksum) throws IOException {
+        if(file==null){
+            return updateMovie(movieId,movieDto,null,null,checksum);
+        }
+        try(InputStream poster=file.getInputStream()){
+            return updateMovie(movieId,movieDto,file.getOriginalFilename(),poster,checksum);
+        }
+    }
+
+    @Override
+    @CacheEvict(cacheNames = {"movieLists", "moviePages"}, allEntries = true)
+    public MovieDto updateMovie(Integer movieId, MovieDto movieDto, String filename, InputStream poster, String checksum) throws IOException {
         //1. First Check if movie exists with given id
         Movie mv= movieRepository.findById(movieId).orElseThrow(()->new MovieNotFoundException("Movie Not Found with id= "+movieId));
 
-        //2. If file is null, then no need to update file associted with movieId else delete it and upload new file
-        String fileName=mv.getPoster();
-        if(file!=null){
-            //Delete exisiting file
-            Files.deleteIfExists(Paths.get(path+ File.separator+fileName));
-            fileName=fileService.uploadFile(path,file);
+        //2. If file is null, then no need to update file associted with movieId else upload the new file
+        String oldFileName=mv.getPoster();
+        String fileName=oldFileName;
+        if(poster!=null){
+            fileName=fileService.storeFile(path,filename,poster,checksum);
         }
 
         //3. Set Movie Dto postervalue according to step 2
         movieDto.setPoster(fileName);
 
-        //4. Map to movie Object
-        Movie movie=new Movie(
-                movieDto.getMovieId(),
-                movieDto.getTitle(),
-                movieDto.getDirector(),
-                movieDto.getStudio(),
-                movieDto.getMovieCast(),
-                movieDto.getReleaseYear(),
-                movieDto.getPoster()
-        );
-        //5.Save the movie object to repo
-        movieRepository.save(movie);
-        //6. Generate posterurl and finally map it to movieDto and return it
-        String posterUrl= baseUrl +"/file/"+fileName;
-
-        MovieDto response=new MovieDto(
-                movie.getMovieId(),
-                movie.getTitle(),
-                movie.getDirector(),
-                movie.getStudio(),
-                movie.getMovieCast(),
-                movie.getReleaseYear(),
-                movie.getPoster(),
-                posterUrl
-        );
+        //4. Map to movie Object, always for the movie named in the path
+        Movie movie=movieMapper.toEntity(movieId,movieDto);
+        //5.Save the movie object to repo, then let go of whichever poster is no longer referenced
+        try{
+            movieRepository.save(movie);
+        }catch (RuntimeException ex){
+            if(poster!=null){
+                fileService.unpinFile(fileName);
+                releasePoster(fileName);
+            }
+            throw ex;
+        }
+        if(poster!=null){
+            fileService.unpinFile(fileName);
+        }
+        if(!fileName.equals(oldFileName)){
+            releasePoster(oldFileName);
+        }
+        //6. Finally map it to movieDto, generating the posterurl, and return it
+        MovieDto response=movieMapper.toDto(movie);
+        eventPublisher.publishEvent(MovieChangedEvent.saved(response));
+        catalogueVersion.advance();
         return response;
     }
 
     @Override
+    @CacheEvict(cacheNames = {"movieLists", "moviePages"}, allEntries = true)
     public String deleteMovie(Integer movieId) throws IOException {
        //1. Check if MovieObject exists in Db
         Movie mv=movieRepository.findById(movieId).orElseThrow(()->new MovieNotFoundException("Movie Not Found"));
         Integer id=mv.getMovieId();
-        //2. Delete the file corresponding to movieObject
-        Files.deleteIfExists(Paths.get(path+File.separator+mv.getPoster()));
 
-        //3.Delete movieObject from repo
+        //2.Delete movieObject from repo
         movieRepository.delete(mv);
 
+        //3. Delete the file corresponding to movieObject, unless another movie shares it
+        releasePoster(mv.getPoster());
+        eventPublisher.publishEvent(MovieChangedEvent.deleted(id));
+        catalogueVersion.advance();
+
         return "Movie Deleted with id = "+id;
     }
 
     @Override
+    @Cacheable(cacheNames = "moviePages", key = "{@catalogueVersion.current(), #pageNumber, #pageSize}")
     public MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize) {
         Pageable pageable= PageRequest.of(pageNumber,pageSize);
-        Page<Movie>moviePages=movieRepository.findAll(pageable);
-        List<Movie>movies=moviePages.getContent();
-
-        List<MovieDto> movieDtos=new ArrayList<>();
-
-        for(Movie movie: movies){
-            String posterUrl= baseUrl +"/file/"+movie.getPoster();
-            MovieDto response=new MovieDto(
-                    movie.getMovieId(),
-                    movie.getTitle(),
-                    movie.getDirector(),
-                    movie.getStudio(),
-                    movie.getMovieCast(),
-                    movie.getReleaseYear(),
-                    movie.getPoster(),
-                    posterUrl
-            );
-            movieDtos.add(response);
-        }
+        //Unsorted pages come back in movieId order from either source
+        Page<MovieRow>moviePages=movieCatalogue.isAvailable()
+                ?movieCatalogue.page(pageNumber,pageSize,"movieId",true)
+                :readOnlyTransaction.execute(status->movieRepository.findAllRows(pageable));
+        List<MovieRow>movies=moviePages.getContent();
+
+        List<MovieDto> movieDtos=movieMapper.rowsToDtos(movies);
         return new MoviePageResponse(movieDtos, pageNumber, pageSize,
                 moviePages.getTotalElements(),
                 moviePages.getTotalPages(),
@@ -218,32 +264,117 @@ public class MovieServiceImpl implements MovieService{
     }
 
     @Override
+    @Cacheable(cacheNames = "moviePages", key = "{@catalogueVersion.current(), #pageNumber, #pageSize, #sortBy, #dir.equalsIgnoreCase('asc')}")
     public MoviePageResponse getAllMoviesWithPagination(Integer pageNumber, Integer pageSize, String sortBy, String dir) {
-        Sort sort=dir.equalsIgnoreCase("asc")?Sort.by(sortBy).ascending():Sort.by(sortBy).descending();
+        boolean ascending=dir.equalsIgnoreCase("asc");
+        Sort sort=indexedSort(sortBy,ascending?Sort.Direction.ASC:Sort.Direction.DESC);
 
+        //The snapshot stores every sortable field's order, so a sorted page from it is a lookup
         Pageable pageable= PageRequest.of(pageNumber,pageSize,sort);
-        Page<Movie>moviePages=movieRepository.findAll(pageable);
-        List<Movie>movies=moviePages.getContent();
-
-        List<MovieDto> movieDtos=new ArrayList<>();
-
-        for(Movie movie: movies){
-            String posterUrl= baseUrl +"/file/"+movie.getPoster();
-            MovieDto response=new MovieDto(
-                    movie.getMovieId(),
-                    movie.getTitle(),
-                    movie.getDirector(),
-                    movie.getStudio(),
-                    movie.getMovieCast(),
-                    movie.getReleaseYear(),
-                    movie.getPoster(),
-                    posterUrl
-            );
-            movieDtos.add(response);
-        }
+        Page<MovieRow>moviePages=movieCatalogue.isAvailable()
+                ?movieCatalogue.page(pageNumber,pageSize,sortBy,ascending)
+                :readOnlyTransaction.execute(status->movieRepository.findAllRows(pageable));
+        List<MovieRow>movies=moviePages.getContent();
+
+        List<MovieDto> movieDtos=movieMapper.rowsToDtos(movies);
         return new MoviePageResponse(movieDtos, pageNumber, pageSize,
                 moviePages.getTotalElements(),
                 moviePages.getTotalPages(),
                 moviePages.isLast());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MovieScrollResponse getAllMoviesWithScroll(String cursor, Integer pageSize, String sortBy, String dir, boolean withTotal) {
+        Sort.Direction direction=dir.equalsIgnoreCase("asc")?Sort.Direction.ASC:Sort.Direction.DESC;
+        Sort sort=indexedSort(sortBy,direction);
+
+        //1. Resume right after the last movie of the previous page, or start from the top
+        ScrollPosition position=ScrollPosition.keyset();
+        if(cursor!=null && !cursor.isBlank()){
+            ScrollCursor last=ScrollCursor.decode(cursor);
+            if(!last.sortBy().equals(sortBy) || !last.dir().equals(direction.name())){
+                throw new InvalidCursorException("Cursor was issued for a different sort order");
+            }
+            Map<String,Object> keys=new HashMap<>();
+            keys.put(sortBy,last.key());
+            keys.put("movieId",last.movieId());
+            position=ScrollPosition.forward(keys);
+        }
+
+        //2. Seek to the next window
+        Window<Movie> window=movieRepository.findAllBy(position,sort,Limit.of(pageSize));
+        List<MovieDto> movieDtos=movieMapper.toDtos(window.getContent());
+
+        //3. Encode where the next window starts; the total count is only paid for when asked
+        String nextCursor=null;
+        if(window.hasNext() && !window.isEmpty()){
+            KeysetScrollPosition next=(KeysetScrollPosition) window.positionAt(window.size()-1);
+            nextCursor=new ScrollCursor(sortBy,direction.name(),next.getKeys().get(sortBy),(Integer) next.getKeys().get("movieId")).encode();
+        }
+        Long totalElements=withTotal?movieRepository.count():null;
+        return new MovieScrollResponse(movieDtos, pageSize, nextCursor, nextCursor==null, totalElements);
+    }
+
+    @Override
+    public MovieSearchResponse searchMovies(String query, Integer limit) {
+        long started=System.nanoTime();
+
+        //1. Rank matching ids from the in-memory index
+        List<Integer> ids=movieSearchIndex.search(query,limit);
+
+        //2. Load just those movies and put them back in rank order
+        List<MovieDto> movieDtos=loadInOrder(ids);
+        return new MovieSearchResponse(query, movieDtos, (System.nanoTime()-started)/1000);
+    }
+
+    @Override
+    public MovieFacetResponse browseMovies(FacetFilter filter, Integer pageNumber, Integer pageSize, Integer facetLimit) {
+        long started=System.nanoTime();
+
+        //1. Filter and count on the in-memory bitmaps
+        MovieFacetIndex.Result result=movieFacetIndex.query(filter,pageNumber,pageSize,facetLimit);
+
+        //2. Load only the movies on the requested page
+        List<MovieDto> movieDtos=loadInOrder(result.movieIds());
+        return new MovieFacetResponse(movieDtos, pageNumber, pageSize, result.totalElements(), result.releaseYears(),
+                result.studios(), result.directors(), result.cast(), (System.nanoTime()-started)/1000);
+    }
+
+    //The given movies in the given order, from the snapshot or in one query; ids that no longer exist are skipped
+    private List<MovieDto> loadInOrder(List<Integer> ids) {
+        Map<Integer,MovieRow> movies=HashMap.newHashMap(ids.size());
+        if(movieCatalogue.isAvailable()){
+            for(Integer id: ids){
+                movieCatalogue.find(id).ifPresent(movie->movies.put(id,movie));
+            }
+        }else if(!ids.isEmpty()){
+            for(MovieRow movie: movieRepository.findAllRowsById(ids)){
+                movies.put(movie.movieId(),movie);
+            }
+        }
+        List<MovieDto> movieDtos=new ArrayList<>(ids.size());
+        for(Integer id: ids){
+            MovieRow movie=movies.get(id);
+            if(movie!=null){
+                movieDtos.add(movieMapper.toDto(movie));
+            }
+        }
+        return movieDtos;
+    }
+
+    //Only fields with a (field, movie_id) index may be sorted on, so every sorted page is an index walk, never a filesort.
+    //movieId breaks ties so every position in the sort order is unique
+    private Sort indexedSort(String sortBy, Sort.Direction direction) {
+        if(!AppConstants.SORT_FIELDS.contains(sortBy)){
+            throw new InvalidSortFieldException("Cannot sort by "+sortBy+"! Sortable fields are "+AppConstants.SORT_FIELDS);
+        }
+        Sort sort=Sort.by(direction,sortBy);
+        return sortBy.equals("movieId")?sort:sort.and(Sort.by(direction,"movieId"));
+    }
+
+    //Counted after the row change has committed, so the count never includes the movie letting go
+    private void releasePoster(String poster) throws IOException {
+        fileService.releaseFile(path,poster,()->movieRepository.countByPoster(poster));
+    }
 }
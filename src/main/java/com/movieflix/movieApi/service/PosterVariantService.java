@@ -0,0 +1,18 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.dto.PosterVariantInfo;
+import com.movieflix.movieApi.utils.PosterSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+public interface PosterVariantService {
+    void scheduleVariants(String path, String filename);
+
+    Path getVariantPath(String path, String filename, PosterSize size);
+
+    List<PosterVariantInfo> getVariants(String path, String filename) throws IOException;
+
+    void deleteVariants(String path, String filename) throws IOException;
+}
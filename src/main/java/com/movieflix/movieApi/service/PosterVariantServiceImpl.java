@@ -0,0 +1,213 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.dto.PosterVariantInfo;
+import com.movieflix.movieApi.utils.PosterPaths;
+import com.movieflix.movieApi.utils.PosterSize;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders resized, JPEG-compressed copies of every poster under {@code <poster dir>/.variants/<size>/},
+ * sharded the same way as the posters themselves.
+ * Rendering happens on a bounded pool after upload; a variant that is not there yet is simply not offered.
+ */
+@Service
+@Timed("movieflix.service")
+public class PosterVariantServiceImpl implements PosterVariantService {
+
+    private static final Logger log = LoggerFactory.getLogger(PosterVariantServiceImpl.class);
+
+    private static final String VARIANTS_DIRECTORY = ".variants";
+
+    private final ThreadPoolTaskExecutor posterProcessingExecutor;
+
+    private final PosterCache posterCache;
+
+    //Posters with a render queued or running, so repeated requests don't pile up duplicate work
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PosterVariantServiceImpl(@Qualifier("posterProcessingExecutor") ThreadPoolTaskExecutor posterProcessingExecutor, PosterCache posterCache) {
+        this.posterProcessingExecutor = posterProcessingExecutor;
+        this.posterCache = posterCache;
+    }
+
+    @Value("${project.poster-variants.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${base.url}")
+    private String baseUrl;
+
+    @Override
+    public void scheduleVariants(String path, String filename) {
+        if (!inFlight.add(filename)) {
+            return;
+        }
+        try {
+            posterProcessingExecutor.execute(() -> {
+                try {
+                    renderVariants(path, filename);
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Could not render variants for poster {}", filename, ex);
+                } finally {
+                    inFlight.remove(filename);
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            inFlight.remove(filename);
+            log.debug("Variant queue full, {} will be rendered when first requested", filename);
+        }
+    }
+
+    @Override
+    public Path getVariantPath(String path, String filename, PosterSize size) {
+        Path variant = variantPath(path, filename, size);
+        if (Files.isRegularFile(variant)) {
+            return variant;
+        }
+        //Missing (queue was full, or the app restarted mid-render): render it in the background for next time
+        if (Files.isRegularFile(PosterPaths.resolve(Paths.get(path), filename))) {
+            scheduleVariants(path, filename);
+        }
+        return null;
+    }
+
+    @Override
+    public List<PosterVariantInfo> getVariants(String path, String filename) throws IOException {
+        List<PosterVariantInfo> variants = new ArrayList<>();
+        for (PosterSize size : PosterSize.values()) {
+            Path variant = variantPath(path, filename, size);
+            if (Files.isRegularFile(variant)) {
+                int[] dimensions = readDimensions(variant);
+                variants.add(new PosterVariantInfo(size.directory(), MediaType.IMAGE_JPEG_VALUE, dimensions[0], dimensions[1],
+                        Files.size(variant), baseUrl + "/file/" + filename + "?size=" + size.directory()));
+            }
+        }
+        return variants;
+    }
+
+    @Override
+    public void deleteVariants(String path, String filename) throws IOException {
+        for (PosterSize size : PosterSize.values()) {
+            Files.deleteIfExists(variantPath(path, filename, size));
+            posterCache.invalidate(size.cacheKey(filename));
+        }
+    }
+
+    private void renderVariants(String path, String filename) throws IOException {
+        Path source = PosterPaths.resolve(Paths.get(path), filename);
+        if (!Files.isRegularFile(source)) {
+            return;
+        }
+        FileTime sourceStamp = Files.getLastModifiedTime(source);
+        BufferedImage original = ImageIO.read(source.toFile());
+        if (original == null) {
+            log.debug("Poster {} is not in a format ImageIO can decode, no variants rendered", filename);
+            return;
+        }
+
+        for (PosterSize size : PosterSize.values()) {
+            //Never upscale: sizes wider than the original are left out and the original is served instead
+            if (size.width() > original.getWidth()) {
+                continue;
+            }
+            int width = size.width() == 0 ? original.getWidth() : size.width();
+            int height = Math.max(1, Math.round(original.getHeight() * (width / (float) original.getWidth())));
+            Path target = variantPath(path, filename, size);
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "render-", ".tmp");
+            try {
+                writeJpeg(resize(original, width, height), temp);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            posterCache.invalidate(size.cacheKey(filename));
+        }
+
+        //The poster was replaced or deleted while rendering: drop what was written from the old bytes
+        if (!Files.isRegularFile(source) || !Files.getLastModifiedTime(source).equals(sourceStamp)) {
+            deleteVariants(path, filename);
+        }
+    }
+
+    private BufferedImage resize(BufferedImage original, int width, int height) {
+        //JPEG has no alpha, so transparent areas are flattened onto white
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    //Reads only the header, not the pixels
+    private int[] readDimensions(Path image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return new int[]{0, 0};
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Path variantPath(String path, String filename, PosterSize size) {
+        return PosterPaths.resolve(Paths.get(path).resolve(VARIANTS_DIRECTORY).resolve(size.directory()), filename + ".jpg");
+    }
+}
@@ -0,0 +1,220 @@
+package com.movieflix.movieApi.snapshot;
+
+import com.movieflix.movieApi.repositories.MovieRow;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, memory-mapped image of the whole catalogue. Nothing is decoded until a movie is asked for, so opening one
+ * costs a page-table entry rather than a heap full of objects, and the pages are shared with every other process mapping the file.
+ * <pre>
+ * header   magic, version, count, ordersOffset, heapOffset, heapLength, createdAt
+ * records  count x 48 bytes in movieId order: movieId, releaseYear, then (offset, length) into the heap for
+ *          title, director, studio, poster and cast (members joined by {@link MovieRow#CAST_SEPARATOR}, length -1 for none)
+ * orders   for each of {@link #ORDERED_FIELDS}, count record numbers in ascending sort order
+ * heap     UTF-8 strings, each distinct value stored once
+ * </pre>
+ * Text is ordered case-insensitively, with movieId breaking ties as it does for the database indexes.
+ */
+public final class CatalogueSnapshot {
+
+    //"MFXS"
+    private static final int MAGIC = 0x4D465853;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+
+    private static final int RECORD_BYTES = 48;
+
+    private static final int NO_VALUE = -1;
+
+    //movieId needs no order of its own, it is the record order
+    public static final List<String> ORDERED_FIELDS = List.of("title", "director", "studio", "releaseYear");
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final int ordersOffset;
+
+    private final int heapOffset;
+
+    private final long createdAt;
+
+    private CatalogueSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a version " + VERSION + " catalogue snapshot");
+        }
+        this.count = buffer.getInt(8);
+        this.ordersOffset = buffer.getInt(12);
+        this.heapOffset = buffer.getInt(16);
+        this.createdAt = buffer.getLong(24);
+        if ((long) heapOffset + buffer.getInt(20) != buffer.capacity()) {
+            throw new IllegalStateException("Catalogue snapshot is truncated");
+        }
+    }
+
+    public static CatalogueSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //The mapping outlives the channel, and a file replaced later keeps its old pages until this one is dropped
+            return new CatalogueSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the rows, which must come in movieId order, as a new snapshot. The rows are held while the sort orders
+     * are worked out; the file itself is written sequentially.
+     */
+    public static void write(Path file, Iterator<MovieRow> rows) throws IOException {
+        List<MovieRow> movies = new ArrayList<>();
+        rows.forEachRemaining(movies::add);
+
+        //1. Lay the strings out in the heap, each distinct value once; directors and studios repeat a lot
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        Map<String, long[]> stored = new HashMap<>();
+        int[] records = new int[movies.size() * RECORD_BYTES / Integer.BYTES];
+        for (int i = 0; i < movies.size(); i++) {
+            MovieRow movie = movies.get(i);
+            int at = i * RECORD_BYTES / Integer.BYTES;
+            records[at] = movie.movieId();
+            records[at + 1] = movie.releaseYear();
+            String[] values = {movie.title(), movie.director(), movie.studio(), movie.poster(), movie.cast()};
+            for (int v = 0; v < values.length; v++) {
+                long[] slot = values[v] == null ? new long[]{0, NO_VALUE} : stored.computeIfAbsent(values[v], value -> {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    long[] position = {heap.size(), bytes.length};
+                    heap.writeBytes(bytes);
+                    return position;
+                });
+                records[at + 2 + v * 2] = (int) slot[0];
+                records[at + 3 + v * 2] = (int) slot[1];
+            }
+        }
+
+        //2. Work out every sort order up front, so a sorted page is a lookup rather than a sort
+        int ordersOffset = HEADER_BYTES + movies.size() * RECORD_BYTES;
+        long heapOffset = ordersOffset + (long) ORDERED_FIELDS.size() * movies.size() * Integer.BYTES;
+        if (heapOffset + heap.size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Catalogue is too large for a single snapshot mapping");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(movies.size());
+            out.writeInt(ordersOffset);
+            out.writeInt((int) heapOffset);
+            out.writeInt(heap.size());
+            out.writeLong(System.currentTimeMillis());
+            for (int value : records) {
+                out.writeInt(value);
+            }
+            for (String field : ORDERED_FIELDS) {
+                Comparator<MovieRow> order = comparator(field);
+                List<Integer> ranked = new ArrayList<>(movies.size());
+                for (int i = 0; i < movies.size(); i++) {
+                    ranked.add(i);
+                }
+                ranked.sort((a, b) -> order.compare(movies.get(a), movies.get(b)));
+                for (int index : ranked) {
+                    out.writeInt(index);
+                }
+            }
+            heap.writeTo(out);
+        }
+    }
+
+    /**
+     * The order a snapshot sorts by, for merging in rows that are not part of it.
+     */
+    public static Comparator<MovieRow> comparator(String sortBy) {
+        Comparator<MovieRow> byField = switch (sortBy) {
+            case "title" -> Comparator.comparing(MovieRow::title, String.CASE_INSENSITIVE_ORDER);
+            case "director" -> Comparator.comparing(MovieRow::director, String.CASE_INSENSITIVE_ORDER);
+            case "studio" -> Comparator.comparing(MovieRow::studio, String.CASE_INSENSITIVE_ORDER);
+            case "releaseYear" -> Comparator.comparing(MovieRow::releaseYear);
+            case "movieId" -> (a, b) -> 0;
+            default -> throw new IllegalArgumentException("Snapshot has no order for " + sortBy);
+        };
+        return byField.thenComparing(MovieRow::movieId);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long createdAt() {
+        return createdAt;
+    }
+
+    public int movieId(int index) {
+        return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    public MovieRow row(int index) {
+        int at = HEADER_BYTES + index * RECORD_BYTES;
+        return new MovieRow(buffer.getInt(at), string(at + 8), string(at + 16), string(at + 24),
+                buffer.getInt(at + 4), string(at + 32), string(at + 40));
+    }
+
+    /**
+     * Record number of the movie, or -1 if the snapshot does not have it.
+     */
+    public int indexOf(int movieId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = movieId(mid);
+            if (id < movieId) {
+                low = mid + 1;
+            } else if (id > movieId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Record number of the movie at {@code rank} in ascending {@code sortBy} order.
+     */
+    public int ranked(String sortBy, int rank) {
+        if (sortBy.equals("movieId")) {
+            return rank;
+        }
+        int field = ORDERED_FIELDS.indexOf(sortBy);
+        if (field < 0) {
+            throw new IllegalArgumentException("Snapshot has no order for " + sortBy);
+        }
+        return buffer.getInt(ordersOffset + (field * count + rank) * Integer.BYTES);
+    }
+
+    private String string(int slot) {
+        int length = buffer.getInt(slot + 4);
+        if (length == NO_VALUE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heapOffset + buffer.getInt(slot), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
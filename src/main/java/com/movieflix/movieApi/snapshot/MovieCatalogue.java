@@ -0,0 +1,416 @@
+package com.movieflix.movieApi.snapshot;
+
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.mappers.MovieMapper;
+import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.repositories.MovieRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The catalogue as served without the database: a mapped {@link CatalogueSnapshot} plus an overlay of the changes
+ * this instance has seen since the snapshot was written. Writes still go to the database; every {@link MovieChangedEvent}
+ * lands in the overlay, and each periodic rebuild folds the overlay back into a fresh snapshot.
+ * Changes made through other instances show up with the next rebuild, as they do for the caches.
+ */
+@Component
+public class MovieCatalogue {
+
+    private static final Logger log = LoggerFactory.getLogger(MovieCatalogue.class);
+
+    private final MovieRepository movieRepository;
+
+    private final MovieMapper movieMapper;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final TaskScheduler taskScheduler;
+
+    private final CatalogueVersion catalogueVersion;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //movieId -> newest change not yet in the snapshot; a null row is a deletion
+    private final Map<Integer, Change> overlay = new HashMap<>();
+
+    private long sequence;
+
+    private volatile CatalogueSnapshot snapshot;
+
+    //"sortBy:ascending" -> the overlay sorted that way, reused until the overlay or the snapshot changes
+    private final Map<String, View> views = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    @Value("${project.snapshot.enabled:false}")
+    private boolean enabled;
+
+    @Value("${project.snapshot.file:catalogue/movies.snapshot}")
+    private String file;
+
+    @Value("${project.snapshot.refresh-interval:10m}")
+    private Duration refreshInterval;
+
+    @Value("${project.snapshot.max-overlay:1000}")
+    private int maxOverlay;
+
+    public MovieCatalogue(MovieRepository movieRepository, MovieMapper movieMapper,
+                          PlatformTransactionManager transactionManager, TaskScheduler taskScheduler,
+                          CatalogueVersion catalogueVersion) {
+        this.movieRepository = movieRepository;
+        this.movieMapper = movieMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskScheduler = taskScheduler;
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    private record Change(long sequence, MovieRow row) {
+    }
+
+    //Consistent view for reads in one order: the overlay is copied, so a walk holds no lock however slowly it is consumed.
+    //staleRanks are the sorted ranks, in that order, of the snapshot rows the overlay replaces or deletes.
+    private record View(CatalogueSnapshot snapshot, long sequence, Set<Integer> changed, List<MovieRow> added,
+                        int[] staleRanks, long total) {
+    }
+
+    //Runs before anything else that reads the catalogue at startup, such as the search index
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        //1. Map whatever snapshot is on disk, which is instant; only a pod without one waits for the database
+        Path mapped = Path.of(file);
+        if (Files.isRegularFile(mapped)) {
+            try {
+                snapshot = CatalogueSnapshot.open(mapped);
+                log.info("Catalogue snapshot with {} movies mapped from {}", snapshot.size(), file);
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Catalogue snapshot {} could not be mapped, rebuilding it", file, ex);
+            }
+        }
+        if (snapshot == null) {
+            refresh();
+        } else if (Instant.ofEpochMilli(snapshot.createdAt()).isBefore(Instant.now().minus(refreshInterval))) {
+            //An old snapshot is served while a fresh one is built
+            taskScheduler.schedule(this::refresh, Instant.now());
+        }
+
+        //2. Fold in changes made elsewhere every interval
+        taskScheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plus(refreshInterval), refreshInterval);
+    }
+
+    /**
+     * Writes a new snapshot from the database and swaps it in. If the database can't be read the current snapshot stays.
+     */
+    public synchronized void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long since;
+        lock.readLock().lock();
+        try {
+            since = sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            //1. Write next to the live file and rename over it, so a crash never leaves half a snapshot behind
+            Path target = Path.of(file).toAbsolutePath();
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<MovieRow> rows = movieRepository.streamAllRows()) {
+                        CatalogueSnapshot.write(temp, rows.iterator());
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            CatalogueSnapshot fresh = CatalogueSnapshot.open(target);
+
+            //2. Everything seen before the export started is in the new snapshot; later changes stay in the overlay
+            lock.writeLock().lock();
+            try {
+                snapshot = fresh;
+                overlay.values().removeIf(change -> change.sequence() <= since);
+                views.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            refreshScheduled.set(false);
+            //The new snapshot may carry changes made through other instances, so listings seen before it are stale
+            catalogueVersion.advance();
+            log.info("Catalogue snapshot with {} movies written in {} ms", fresh.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Catalogue snapshot could not be refreshed, still serving the previous one", ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        MovieRow row = event.type() == MovieChangedEvent.Type.DELETED ? null : movieMapper.toRow(event.movie());
+        int overlaid;
+        lock.writeLock().lock();
+        try {
+            overlay.put(event.movieId(), new Change(++sequence, row));
+            views.clear();
+            overlaid = overlay.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        //Every read merges the overlay, so a big one (say after a bulk ingest) is folded in now rather than at the interval
+        if (overlaid >= maxOverlay && refreshScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::refresh, Instant.now());
+        }
+    }
+
+    /**
+     * Whether reads can be answered from here; until a snapshot is mapped they go to the database.
+     */
+    public boolean isAvailable() {
+        return snapshot != null;
+    }
+
+    public Optional<MovieRow> find(int movieId) {
+        lock.readLock().lock();
+        try {
+            Change change = overlay.get(movieId);
+            if (change != null) {
+                return Optional.ofNullable(change.row());
+            }
+            int index = snapshot.indexOf(movieId);
+            return index < 0 ? Optional.empty() : Optional.of(snapshot.row(index));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page in the given order; the movieId tie-breaker matches the database's, so pages line up with its answers.
+     */
+    public Page<MovieRow> page(int pageNumber, int pageSize, String sortBy, boolean ascending) {
+        View view = view(sortBy, ascending);
+        long skip = (long) pageNumber * pageSize;
+        List<MovieRow> rows = new ArrayList<>((int) Math.max(0, Math.min(pageSize, view.total() - skip)));
+        walk(view, sortBy, ascending, skip, pageSize, rows::add);
+        return new PageImpl<>(rows, PageRequest.of(pageNumber, pageSize), view.total());
+    }
+
+    //Every movie in movieId order
+    public void forEach(Consumer<MovieRow> consumer) {
+        View view = view("movieId", true);
+        walk(view, "movieId", true, 0, view.total(), consumer);
+    }
+
+    public long count() {
+        return view("movieId", true).total();
+    }
+
+    //Built once per order and overlay change, not per read
+    private View view(String sortBy, boolean ascending) {
+        lock.readLock().lock();
+        try {
+            CatalogueSnapshot current = snapshot;
+            View cached = views.get(sortBy + ":" + ascending);
+            if (cached != null && cached.sequence() == sequence && cached.snapshot() == current) {
+                return cached;
+            }
+            Comparator<MovieRow> order = CatalogueSnapshot.comparator(sortBy);
+            if (!ascending) {
+                order = order.reversed();
+            }
+            Set<Integer> changed = new HashSet<>(overlay.keySet());
+            List<MovieRow> added = new ArrayList<>();
+            int[] staleRanks = new int[overlay.size()];
+            int stale = 0;
+            for (Map.Entry<Integer, Change> change : overlay.entrySet()) {
+                if (change.getValue().row() != null) {
+                    added.add(change.getValue().row());
+                }
+                int index = current.indexOf(change.getKey());
+                if (index >= 0) {
+                    staleRanks[stale++] = rowsBefore(current, sortBy, ascending, order, current.row(index));
+                }
+            }
+            added.sort(order);
+            staleRanks = Arrays.copyOf(staleRanks, stale);
+            Arrays.sort(staleRanks);
+            View view = new View(current, sequence, changed, added, staleRanks, current.size() - stale + added.size());
+            //Written under the read lock, which excludes any change, so a view is never stored against a newer overlay
+            views.put(sortBy + ":" + ascending, view);
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Merges the snapshot's precomputed order with the (few) overlay rows, decoding only what is compared or returned
+    private void walk(View view, String sortBy, boolean ascending, long skip, long limit, Consumer<MovieRow> consumer) {
+        CatalogueSnapshot current = view.snapshot();
+        int count = current.size();
+
+        //1. Nothing changed since the snapshot: the page is a slice of the stored order
+        if (view.changed().isEmpty()) {
+            for (long rank = skip; rank < count && rank < skip + limit; rank++) {
+                consumer.accept(current.row(current.ranked(sortBy, rank(ascending, count, (int) rank))));
+            }
+            return;
+        }
+
+        //2. Otherwise skip the snapshot's stale copies and slot the overlay rows in where they sort
+        Comparator<MovieRow> order = CatalogueSnapshot.comparator(sortBy);
+        if (!ascending) {
+            order = order.reversed();
+        }
+        List<MovieRow> added = view.added();
+        int rank = 0;
+        int next = 0;
+        long position = 0;
+        if (skip > 0) {
+            //Jump straight to the first row of the page rather than decoding every row before it
+            int[] staleRanks = view.staleRanks();
+            //Overlay rows that sort before the page are skipped whole; their merged positions only grow, so binary search
+            int low = 0;
+            int high = added.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (middle + survivorsBefore(staleRanks, rowsBefore(current, sortBy, ascending, order, added.get(middle))) < skip) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            next = low;
+            //The rest of the skip is snapshot rows; stale copies in that stretch don't count towards it
+            long target = skip - next;
+            if (target >= count) {
+                return;
+            }
+            rank = (int) target;
+            for (int stale : staleRanks) {
+                if (stale < rank) {
+                    rank++;
+                } else {
+                    break;
+                }
+            }
+            position = skip;
+        }
+        long emitted = 0;
+        int pending = -1;
+        MovieRow pendingRow = null;
+        while (emitted < limit) {
+            while (pending < 0 && rank < count) {
+                int index = current.ranked(sortBy, rank(ascending, count, rank++));
+                if (!view.changed().contains(current.movieId(index))) {
+                    pending = index;
+                }
+            }
+            boolean fromSnapshot;
+            if (next < added.size() && pending >= 0) {
+                if (pendingRow == null) {
+                    pendingRow = current.row(pending);
+                }
+                fromSnapshot = order.compare(pendingRow, added.get(next)) < 0;
+            } else if (pending >= 0) {
+                fromSnapshot = true;
+            } else if (next < added.size()) {
+                fromSnapshot = false;
+            } else {
+                return;
+            }
+
+            if (fromSnapshot) {
+                if (position++ >= skip) {
+                    consumer.accept(pendingRow != null ? pendingRow : current.row(pending));
+                    emitted++;
+                }
+                pending = -1;
+                pendingRow = null;
+            } else {
+                if (position++ >= skip) {
+                    consumer.accept(added.get(next));
+                    emitted++;
+                }
+                next++;
+            }
+        }
+    }
+
+    //How many snapshot rows sort before the given one, by binary search over the stored order
+    private static int rowsBefore(CatalogueSnapshot current, String sortBy, boolean ascending, Comparator<MovieRow> order, MovieRow row) {
+        int count = current.size();
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            MovieRow ranked = current.row(current.ranked(sortBy, rank(ascending, count, middle)));
+            if (order.compare(ranked, row) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //Snapshot rows before the given rank that are still current, i.e. not replaced or deleted since
+    private static long survivorsBefore(int[] staleRanks, int rank) {
+        int stale = Arrays.binarySearch(staleRanks, rank);
+        //Ranks are distinct: a hit's index, or a miss's insertion point, is the count of stale ranks below rank
+        return rank - (stale >= 0 ? stale : -stale - 1);
+    }
+
+    private static int rank(boolean ascending, int count, int rank) {
+        return ascending ? rank : count - 1 - rank;
+    }
+}
@@ -1,8 +1,27 @@
 package com.movieflix.movieApi.utils;
 
+import java.util.Set;
+
 public class AppConstants {
     public static final String PAGE_NUMBER="0";
     public static final String PAGE_SIZE="3";
+    //Largest page any listing hands out; bigger pages are rejected rather than loaded
+    public static final int MAX_PAGE_SIZE=1000;
     public static final String SORT_BY="movieId";
     public static final String SORT_DIR="asc";
+    public static final String SEARCH_LIMIT="20";
+    public static final String SUGGEST_LIMIT="8";
+    public static final int MAX_SUGGEST_LIMIT=50;
+    public static final String FACET_LIMIT="10";
+    public static final int MAX_FACET_LIMIT=100;
+    //"compact" leaves out fields a client can derive, see dto.Views
+    public static final String VIEW="full";
+    public static final String EXPORT_FETCH_SIZE="500";
+    //Column widths from db/migration; bulk items over them are rejected up front instead of failing their whole JDBC batch
+    public static final int MAX_TITLE_LENGTH=200;
+    public static final int MAX_TEXT_LENGTH=255;
+    //Movies per bulk update/delete request; each request is one transaction holding row locks on all of them
+    public static final int MAX_MUTATION_BATCH=1000;
+    //Each has a (column, movie_id) index in db/migration; add the index before adding a field here
+    public static final Set<String> SORT_FIELDS=Set.of("movieId","title","director","studio","releaseYear");
 }
@@ -0,0 +1,81 @@
+package com.movieflix.movieApi.utils;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Blocking view of a request body for code that consumes an InputStream.
+ * At most {@code prefetch} buffers are requested ahead of the reader, so a slow consumer slows the client down
+ * rather than piling the upload up in memory. Must be read on a thread that is allowed to block.
+ */
+public final class DataBufferInputStream extends InputStream {
+
+    private final Stream<DataBuffer> stream;
+
+    private final Iterator<DataBuffer> buffers;
+
+    private DataBuffer current;
+
+    public DataBufferInputStream(Flux<DataBuffer> content, int prefetch) {
+        this.stream = content.toStream(prefetch);
+        this.buffers = stream.iterator();
+    }
+
+    @Override
+    public int read() {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, current.readableByteCount());
+        current.read(target, offset, count);
+        return count;
+    }
+
+    /**
+     * Whether the body has no bytes at all, the counterpart of {@code MultipartFile.isEmpty()}. Blocks until the first
+     * bytes or the end of the body arrive; nothing is consumed.
+     */
+    public boolean isEmpty() {
+        return !fill();
+    }
+
+    //Cancels the upstream, so closing early stops reading the rest of the request
+    @Override
+    public void close() {
+        releaseCurrent();
+        stream.close();
+    }
+
+    //Moves on to the next buffer with bytes left in it; false at the end of the body
+    private boolean fill() {
+        while (current == null || current.readableByteCount() == 0) {
+            releaseCurrent();
+            if (!buffers.hasNext()) {
+                return false;
+            }
+            current = buffers.next();
+        }
+        return true;
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+}
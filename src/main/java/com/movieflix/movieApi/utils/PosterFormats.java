@@ -0,0 +1,43 @@
+package com.movieflix.movieApi.utils;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import java.util.List;
+
+/**
+ * Negotiates between a poster's JPEG variant and the format it was uploaded in, from the request's Accept header.
+ */
+public final class PosterFormats {
+
+    private PosterFormats() {
+    }
+
+    /**
+     * The variant is served unless the client refuses JPEG or rates the original's type above it; a tie goes to the
+     * variant, since asking for a size is asking for the smaller file.
+     */
+    public static boolean prefersVariant(List<MediaType> accept, String filename) {
+        if (accept.isEmpty()) {
+            return true;
+        }
+        MediaType original = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        double jpeg = quality(accept, MediaType.IMAGE_JPEG);
+        return jpeg > 0 && jpeg >= quality(accept, original);
+    }
+
+    //q of the most specific range that matches the type, 0 when none does; image/png beats image/* beats */*
+    static double quality(List<MediaType> accept, MediaType type) {
+        MediaType best = null;
+        for (MediaType range : accept) {
+            if (range.includes(type) && (best == null || specificity(range) > specificity(best))) {
+                best = range;
+            }
+        }
+        return best == null ? 0 : best.getQualityValue();
+    }
+
+    private static int specificity(MediaType range) {
+        return range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+    }
+}
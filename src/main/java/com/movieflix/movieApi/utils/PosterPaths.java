@@ -0,0 +1,39 @@
+package com.movieflix.movieApi.utils;
+
+import java.nio.file.Path;
+
+/**
+ * Where a poster name lives on disk.
+ * Content-addressed names ({@code <sha256>.<ext>}) are sharded two levels deep by their leading hex digits,
+ * e.g. {@code 3f/a9/3fa9....png}, so no directory grows past a few hundred entries.
+ * Anything else is a poster uploaded before content addressing and still sits flat in the base directory.
+ */
+public final class PosterPaths {
+
+    private static final int HASH_LENGTH = 64;
+
+    private PosterPaths() {
+    }
+
+    public static Path resolve(Path base, String filename) {
+        if (!isContentAddressed(filename)) {
+            return base.resolve(filename);
+        }
+        return base.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+    }
+
+    //True for "<64 hex digits>" optionally followed by ".anything"
+    public static boolean isContentAddressed(String filename) {
+        if (filename == null || filename.length() < HASH_LENGTH
+                || (filename.length() > HASH_LENGTH && filename.charAt(HASH_LENGTH) != '.')) {
+            return false;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            char c = filename.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package com.movieflix.movieApi.utils;
+
+import com.movieflix.movieApi.exceptions.InvalidPosterSizeException;
+
+import java.util.Locale;
+
+/**
+ * Pre-rendered JPEG variants kept next to every poster. {@code width} 0 keeps the original dimensions.
+ */
+public enum PosterSize {
+    THUMB(160),
+    SMALL(320),
+    MEDIUM(640),
+    FULL(0);
+
+    private final int width;
+
+    PosterSize(int width) {
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public String directory() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String cacheKey(String filename) {
+        return directory() + "/" + filename;
+    }
+
+    public static PosterSize fromParam(String size) {
+        for (PosterSize posterSize : values()) {
+            if (posterSize.name().equalsIgnoreCase(size)) {
+                return posterSize;
+            }
+        }
+        throw new InvalidPosterSizeException("Unknown poster size " + size + "! Use thumb, small, medium or full");
+    }
+}
@@ -0,0 +1,36 @@
+package com.movieflix.movieApi.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.movieflix.movieApi.exceptions.InvalidCursorException;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset scrolling: the sort it was issued for plus the last (sortKey, movieId) pair.
+ * Clients only ever see the Base64 form and must send it back with the same sortBy/dir.
+ */
+public record ScrollCursor(String sortBy, String dir, Object key, Integer movieId) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode cursor", ex);
+        }
+    }
+
+    public static ScrollCursor decode(String token) {
+        try {
+            ScrollCursor cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(token), ScrollCursor.class);
+            if (cursor.sortBy() == null || cursor.dir() == null || cursor.movieId() == null) {
+                throw new InvalidCursorException("Cursor is incomplete");
+            }
+            return cursor;
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new InvalidCursorException("Cursor is malformed");
+        }
+    }
+}
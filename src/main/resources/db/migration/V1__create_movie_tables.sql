@@ -0,0 +1,20 @@
+-- The schema as Hibernate's ddl-auto created it; databases that already have it are baselined at this version
+create table movie (
+    movie_id integer not null auto_increment,
+    release_year integer not null,
+    title varchar(200) not null,
+    director varchar(255) not null,
+    poster varchar(255) not null,
+    studio varchar(255) not null,
+    primary key (movie_id)
+);
+
+create table movie_cast (
+    movie_movie_id integer not null,
+    movie_cast varchar(255)
+);
+
+alter table movie_cast
+    add constraint FKlmid3ji0uvapkxvx5nf9r06bg
+    foreign key (movie_movie_id)
+    references movie (movie_id);
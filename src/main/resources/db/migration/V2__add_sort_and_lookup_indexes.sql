@@ -0,0 +1,12 @@
+-- One index per sortable field (AppConstants.SORT_FIELDS), each ending in movie_id: the paging and scrolling queries
+-- break ties on movie_id, so ORDER BY <field>, movie_id is read straight off the index and LIMIT stops after one page
+create index idx_movie_title on movie (title, movie_id);
+create index idx_movie_director on movie (director, movie_id);
+create index idx_movie_studio on movie (studio, movie_id);
+create index idx_movie_release_year on movie (release_year, movie_id);
+
+-- Reference counting before a poster blob is deleted (countByPoster)
+create index idx_movie_poster on movie (poster);
+
+-- Covers the per-movie cast lookup, so aggregating a movie's cast never touches the table rows
+create index idx_movie_cast_movie on movie_cast (movie_movie_id, movie_cast);
@@ -0,0 +1,63 @@
+package com.movieflix.movieApi.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTests {
+
+    private static final long TARGET = 100;
+
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 10, TARGET);
+
+    @Test
+    void slowCompletionsCutTheLimitOncePerTargetPeriod() {
+        complete(TARGET + 1, 0);
+        assertThat(limit.limit()).isEqualTo(9);
+
+        //Same burst: not counted again
+        complete(TARGET + 1, TARGET / 2);
+        assertThat(limit.limit()).isEqualTo(9);
+
+        complete(TARGET + 1, 2 * TARGET);
+        assertThat(limit.limit()).isEqualTo(8);
+
+        for (long now = 4 * TARGET; now < 100 * TARGET; now += 2 * TARGET) {
+            complete(TARGET + 1, now);
+        }
+        assertThat(limit.limit()).isEqualTo(2);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void fastCompletionsGrowTheLimitBackUpToTheMaximum() {
+        for (long now = 0; limit.limit() > 2; now += 2 * TARGET) {
+            complete(TARGET + 1, now);
+        }
+
+        //Each fast completion adds one with probability 1/limit, so a few thousand always get back to the top
+        for (int i = 0; i < 5_000; i++) {
+            complete(TARGET, 0);
+        }
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void acquiresStopAtTheLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release(TARGET + 1, 0);
+        assertThat(limit.limit()).isEqualTo(9);
+        assertThat(limit.tryAcquire()).isFalse();
+        limit.release(TARGET, 0);
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    private void complete(long latency, long now) {
+        assertThat(limit.tryAcquire()).isTrue();
+        limit.release(latency, now);
+    }
+}
@@ -0,0 +1,106 @@
+package com.movieflix.movieApi.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTests {
+
+    private SimpleMeterRegistry registry;
+
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        AdmissionProperties.Limits api = new AdmissionProperties.Limits(1000, 1000, 3, 3, 2, 4, Duration.ofSeconds(10));
+        AdmissionProperties.Limits poster = new AdmissionProperties.Limits(1000, 1000, 1000, 1000, 2, 10, Duration.ofSeconds(10));
+        admissionController = new AdmissionController(new AdmissionProperties(true, 0.5, 100, "10\\.9\\.\\d+\\.\\d+",
+                Map.of(EndpointClass.API, api, EndpointClass.POSTER, poster)), registry);
+    }
+
+    @Test
+    void eachClientHasItsOwnBucket() {
+        for (int i = 0; i < 3; i++) {
+            admissionController.admit("/api/v1/movie/1", "10.0.0.1").complete();
+        }
+
+        Admission limited = admissionController.admit("/api/v1/movie/1", "10.0.0.1");
+        assertThat(limited.rejectedWith()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(limited.retryAfterSeconds()).isEqualTo(1);
+        assertThat(admissionController.admit("/api/v1/movie/1", "10.0.0.2").isRejected()).isFalse();
+        assertThat(registry.get("movieflix.admission.decisions").tag("outcome", "client_rate_limited").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrencyIsCappedAndSlotsComeBackOnCompletion() {
+        List<Admission> held = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            held.add(admissionController.admit("/file/poster.png", "client-" + i));
+        }
+        assertThat(held).noneMatch(Admission::isRejected);
+
+        Admission overloaded = admissionController.admit("/file/poster.png", "client-x");
+        assertThat(overloaded.rejectedWith()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        //Completing twice only gives one slot back
+        held.get(0).complete();
+        held.get(0).complete();
+        assertThat(admissionController.admit("/file/poster.png", "client-x").isRejected()).isFalse();
+        assertThat(admissionController.admit("/file/poster.png", "client-y").isRejected()).isTrue();
+    }
+
+    @Test
+    void postersAreShedWhileApiIsUnderPressure() {
+        admissionController.admit("/api/v1/movie/1", "a");
+        Admission second = admissionController.admit("/api/v1/movie/2", "b");
+
+        Admission shed = admissionController.admit("/file/poster.png", "c");
+        assertThat(shed.rejectedWith()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.problem("/file/poster.png").getDetail()).contains("higher-priority");
+
+        second.complete();
+        assertThat(admissionController.admit("/file/poster.png", "c").isRejected()).isFalse();
+    }
+
+    @Test
+    void forwardedForIsOnlyBelievedFromTrustedProxies() {
+        //Straight from the client: whatever it claims is ignored
+        assertThat(admissionController.clientAddress("203.0.113.7", List.of("198.51.100.1"))).isEqualTo("203.0.113.7");
+        //Through the load balancer: the address it saw, not the one the client wrote further left
+        assertThat(admissionController.clientAddress("10.9.0.1", List.of("1.2.3.4, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(admissionController.clientAddress("10.9.0.1", List.of("1.2.3.4", "203.0.113.7, 10.9.0.2"))).isEqualTo("203.0.113.7");
+        assertThat(admissionController.clientAddress("10.9.0.1", null)).isEqualTo("10.9.0.1");
+
+        for (int i = 0; i < 3; i++) {
+            admissionController.admit("/api/v1/movie/1", admissionController.clientAddress("10.9.0.1", List.of("spoofed-" + i + ", 203.0.113.7")));
+        }
+        Admission limited = admissionController.admit("/api/v1/movie/1",
+                admissionController.clientAddress("10.9.0.1", List.of("spoofed-x, 203.0.113.7")));
+        assertThat(limited.rejectedWith()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void concurrencyLimitsMustStayPositive() {
+        assertThatThrownBy(() -> new AdmissionProperties.Limits(10, 10, 1, 1, 0, 4, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AdmissionProperties.Limits(10, 10, 1, 1, 5, 4, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unclassifiedPathsAreNeverLimited() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(admissionController.admit("/actuator/prometheus", "scraper").isRejected()).isFalse();
+        }
+    }
+}
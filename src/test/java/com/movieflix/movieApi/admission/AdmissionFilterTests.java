@@ -0,0 +1,75 @@
+package com.movieflix.movieApi.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionFilterTests {
+
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        //One request per client and class, so a second request shows which class the first was counted in
+        AdmissionProperties.Limits once = new AdmissionProperties.Limits(1000, 1000, 0.001, 1, 2, 10, Duration.ofSeconds(10));
+        admissionController = new AdmissionController(new AdmissionProperties(true, 1.0, 100, null,
+                Map.of(EndpointClass.API, once, EndpointClass.BULK, once, EndpointClass.POSTER, once)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void servletFilterClassifiesThePathHandlersSee() {
+        AdmissionFilter filter = new AdmissionFilter(admissionController, new ObjectMapper());
+
+        assertClassifiedAsHandled(path -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            try {
+                filter.doFilter(request, response, new MockFilterChain());
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+            return response.getStatus();
+        });
+    }
+
+    @Test
+    void reactiveFilterClassifiesThePathHandlersSee() {
+        ReactiveAdmissionFilter filter = new ReactiveAdmissionFilter(admissionController, new ObjectMapper());
+
+        assertClassifiedAsHandled(path -> {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(HttpMethod.GET, URI.create(path)));
+            filter.filter(exchange, admitted -> Mono.empty()).block();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            return status == null ? 200 : status.value();
+        });
+    }
+
+    private void assertClassifiedAsHandled(ToIntFunction<String> get) {
+        assertThat(get.applyAsInt("/file/x.png")).isEqualTo(200);
+        assertThat(get.applyAsInt("/fil%65/x.png")).isEqualTo(429);
+        assertThat(get.applyAsInt("/file;a=1/x.png")).isEqualTo(429);
+
+        assertThat(get.applyAsInt("/api/v1/movie/all")).isEqualTo(200);
+        assertThat(get.applyAsInt("/api/v1/movie/%61ll")).isEqualTo(429);
+        assertThat(get.applyAsInt("/%61pi/v1/movie;v=1/all")).isEqualTo(429);
+
+        //The API class was never charged for the encoded /all
+        assertThat(get.applyAsInt("/api/v1/movie/1")).isEqualTo(200);
+    }
+}
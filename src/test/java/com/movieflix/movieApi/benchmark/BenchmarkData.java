@@ -0,0 +1,44 @@
+package com.movieflix.movieApi.benchmark;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.entities.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fixed, realistic-looking catalogue rows shared by the benchmarks, so their numbers can be compared across runs.
+ */
+public final class BenchmarkData {
+
+    public static final String BASE_URL = "http://localhost:8080";
+
+    private BenchmarkData() {
+    }
+
+    public static List<Movie> movies(int count) {
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            movies.add(new Movie(i + 1, "The Movie Title " + i, "Director " + (i % 50), "Studio " + (i % 10),
+                    Set.of("Lead Actor " + i, "Supporting Actor " + i, "Cameo " + (i % 7)),
+                    1970 + i % 55, String.format("%064x", i) + ".png"));
+        }
+        return movies;
+    }
+
+    public static List<MovieDto> movieDtos(int count) {
+        List<MovieDto> dtos = new ArrayList<>(count);
+        for (Movie movie : movies(count)) {
+            dtos.add(new MovieDto(movie.getMovieId(), movie.getTitle(), movie.getDirector(), movie.getStudio(),
+                    movie.getMovieCast(), movie.getReleaseYear(), movie.getPoster(), BASE_URL + "/file/" + movie.getPoster()));
+        }
+        return dtos;
+    }
+
+    //The multipart movieDto part as clients send it to add-movie and update
+    public static String movieDtoJson() {
+        return "{\"title\":\"The Matrix\",\"director\":\"Lana Wachowski\",\"studio\":\"Warner Bros\","
+                + "\"movieCast\":[\"Keanu Reeves\",\"Carrie-Anne Moss\",\"Laurence Fishburne\"],\"releaseYear\":1999}";
+    }
+}
@@ -0,0 +1,61 @@
+package com.movieflix.movieApi.cache;
+
+import com.movieflix.movieApi.dto.PosterCacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PosterCacheTests {
+
+    private final PosterCache posterCache = new PosterCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(1));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyRequestIsCountedOnce() throws IOException {
+        Path small = Files.write(dir.resolve("small.png"), new byte[100]);
+        AtomicInteger resolved = new AtomicInteger();
+        PosterCache.PosterFile file = () -> {
+            resolved.incrementAndGet();
+            return small;
+        };
+
+        assertThat(posterCache.peek("small.png")).isNull();
+        assertThat(posterCache.load("small.png", file).content()).isNotNull();
+        assertThat(posterCache.load("small.png", file).length()).isEqualTo(100);
+        assertThat(posterCache.peek("small.png")).isNotNull();
+
+        //A miss in peek is left for load to count; the file is only resolved on the one real miss
+        assertStats(2, 1);
+        assertThat(resolved).hasValue(1);
+    }
+
+    @Test
+    void postersTooLargeToKeepAreOneMissPerRequest() throws IOException {
+        Path large = Files.write(dir.resolve("large.png"), new byte[4096]);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(posterCache.peek("large.png")).isNull();
+            CachedPoster poster = posterCache.load("large.png", () -> large);
+            assertThat(poster.content()).isNull();
+            assertThat(poster.length()).isEqualTo(4096);
+        }
+
+        assertStats(0, 3);
+        assertThat(posterCache.stats().entries()).isZero();
+    }
+
+    private void assertStats(long hits, long misses) {
+        PosterCacheStats stats = posterCache.stats();
+        assertThat(stats.hitCount()).isEqualTo(hits);
+        assertThat(stats.missCount()).isEqualTo(misses);
+    }
+}
@@ -0,0 +1,155 @@
+package com.movieflix.movieApi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Posters up to 1KB are served from the cache, bigger ones from the file
+@SpringBootTest(properties = "project.poster-cache.max-entry-size=1KB")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FileControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void conditionalRequestsForAnUnchangedPosterAreNotModified() throws Exception {
+        String name = upload("conditional.png", poster(200));
+        MvcResult full = mockMvc.perform(get("/file/{name}", name))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andReturn();
+        String etag = full.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = full.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void rangesAreServedRefusedOrIgnoredByWhetherTheyParse() throws Exception {
+        byte[] poster = poster(200);
+        String name = upload("ranged.png", poster);
+
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/200"))
+                .andExpect(content().bytes(Arrays.copyOfRange(poster, 10, 20)));
+
+        //Well-formed but past the end
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=500-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */200"));
+
+        //Not a byte range at all, so the whole poster
+        for (String invalid : new String[]{"bytes=abc", "items=0-5", "bytes=9-2"}) {
+            mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, invalid))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(poster));
+        }
+    }
+
+    @Test
+    void ifRangeOnlyHonoursTheCurrentEntityTag() throws Exception {
+        byte[] poster = poster(200);
+        String name = upload("if-range.png", poster);
+        MvcResult full = mockMvc.perform(get("/file/{name}", name)).andReturn();
+        String etag = full.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = full.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOf(poster, 10)));
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(poster));
+        //A date is a weak validator, so the range is ignored even when it matches
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, lastModified))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(poster));
+    }
+
+    @Test
+    void headAnswersWithTheHeadersOfTheGet() throws Exception {
+        String name = upload("head.png", poster(200));
+
+        mockMvc.perform(head("/file/{name}", name))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 200))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(head("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void uncachedPostersAreHandedToSendfileWhenTheConnectorSupportsIt() throws Exception {
+        String name = upload("sendfile.png", poster(4096));
+
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=100-199")
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.start", 100L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.end", 200L))
+                .andExpect(request().attribute("org.apache.tomcat.sendfile.filename", endsWith(name)))
+                //Tomcat writes the body after the handler returns
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void uncachedPostersAreTransferredFromTheFileOtherwise() throws Exception {
+        byte[] poster = poster(4096);
+        String name = upload("transfer.png", poster);
+
+        mockMvc.perform(get("/file/{name}", name))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(poster));
+        mockMvc.perform(get("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=-96"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4000-4095/4096"))
+                .andExpect(content().bytes(Arrays.copyOfRange(poster, 4000, 4096)));
+    }
+
+    private String upload(String filename, byte[] poster) throws Exception {
+        String body = mockMvc.perform(post("/file/upload").param("filename", filename)
+                        .contentType(MediaType.IMAGE_PNG).content(poster))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return body.substring("File uploaded: ".length());
+    }
+
+    //Distinct bytes at every offset, so a misplaced range shows
+    static byte[] poster(int length) {
+        byte[] poster = new byte[length];
+        for (int i = 0; i < length; i++) {
+            poster[i] = (byte) (i * 31 + length);
+        }
+        return poster;
+    }
+}
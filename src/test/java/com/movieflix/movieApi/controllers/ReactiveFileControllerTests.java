@@ -0,0 +1,108 @@
+package com.movieflix.movieApi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Arrays;
+
+import static com.movieflix.movieApi.controllers.FileControllerTests.poster;
+
+//Posters up to 1KB are served from the cache, bigger ones read from the file
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "project.poster-cache.max-entry-size=1KB"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ReactiveFileControllerTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void conditionalRequestsForAnUnchangedPosterAreNotModified() {
+        String name = upload("conditional.png", poster(200));
+        HttpHeaders headers = client.get().uri("/file/{name}", name).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .expectBody().returnResult().getResponseHeaders();
+
+        client.get().uri("/file/{name}", name).header(HttpHeaders.IF_NONE_MATCH, headers.getETag()).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        client.get().uri("/file/{name}", name).header(HttpHeaders.IF_MODIFIED_SINCE, headers.getFirst(HttpHeaders.LAST_MODIFIED)).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void rangesAreServedRefusedOrIgnoredByWhetherTheyParse() {
+        for (int length : new int[]{200, 4096}) {
+            byte[] poster = poster(length);
+            String name = upload("ranged-" + length + ".png", poster);
+
+            client.get().uri("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=10-19").exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                    .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + length)
+                    .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(poster, 10, 20));
+
+            //Well-formed but past the end
+            client.get().uri("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=8000-").exchange()
+                    .expectStatus().isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+
+            //Not a byte range at all, so the whole poster
+            for (String invalid : new String[]{"bytes=abc", "items=0-5", "bytes=9-2"}) {
+                client.get().uri("/file/{name}", name).header(HttpHeaders.RANGE, invalid).exchange()
+                        .expectStatus().isOk()
+                        .expectBody(byte[].class).isEqualTo(poster);
+            }
+        }
+    }
+
+    @Test
+    void ifRangeOnlyHonoursTheCurrentEntityTag() {
+        byte[] poster = poster(200);
+        String name = upload("if-range.png", poster);
+        HttpHeaders headers = client.get().uri("/file/{name}", name).exchange()
+                .expectBody().returnResult().getResponseHeaders();
+
+        client.get().uri("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, headers.getETag()).exchange()
+                .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectBody(byte[].class).isEqualTo(Arrays.copyOf(poster, 10));
+        //A date is a weak validator, so the range is ignored even when it matches
+        client.get().uri("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, headers.getFirst(HttpHeaders.LAST_MODIFIED)).exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).isEqualTo(poster);
+    }
+
+    @Test
+    void headAnswersWithTheHeadersOfTheGet() {
+        String name = upload("head.png", poster(4096));
+
+        client.head().uri("/file/{name}", name).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentLength(4096)
+                .expectHeader().contentType(MediaType.IMAGE_PNG)
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody().isEmpty();
+        client.head().uri("/file/{name}", name).header(HttpHeaders.RANGE, "bytes=-96").exchange()
+                .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectHeader().contentLength(96)
+                .expectBody().isEmpty();
+    }
+
+    private String upload(String filename, byte[] poster) {
+        String body = client.post().uri(uri -> uri.path("/file/upload").queryParam("filename", filename).build())
+                .contentType(MediaType.IMAGE_PNG).bodyValue(poster).exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        return body.substring("File uploaded: ".length());
+    }
+}
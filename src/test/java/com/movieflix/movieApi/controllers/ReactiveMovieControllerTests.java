@@ -0,0 +1,180 @@
+package com.movieflix.movieApi.controllers;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+//One blocking thread and tiny export pages, so an export that held on to its thread would stall everything else
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "project.reactive.blocking-threads=1", "project.reactive.export-page-size=2"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ReactiveMovieControllerTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ReactiveMovieController controller;
+
+    @Test
+    void addedMovieIsServedWithItsPoster() {
+        byte[] poster = "reactive poster bytes".repeat(10).getBytes(StandardCharsets.UTF_8);
+        MovieDto added = addMovie("Reactive", poster);
+
+        client.get().uri("/api/v1/movie/{id}", added.getMovieId()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("Reactive");
+
+        client.get().uri("/api/v1/movie/all").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieDto.class).value(movies ->
+                        assertThat(movies).extracting(MovieDto::getMovieId).contains(added.getMovieId()));
+
+        client.get().uri("/file/{name}", added.getPoster()).exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).isEqualTo(poster);
+
+        client.get().uri("/file/{name}", added.getPoster()).header(HttpHeaders.RANGE, "bytes=10-19").exchange()
+                .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + poster.length)
+                .expectBody(byte[].class).isEqualTo(Arrays.copyOfRange(poster, 10, 20));
+    }
+
+    @Test
+    void unchangedListingIsNotModifiedUntilTheCatalogueChanges() {
+        addMovie("Listed", "listed poster".getBytes(StandardCharsets.UTF_8));
+        String etag = client.get().uri("/api/v1/movie/allMoviesPage").exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, tag -> assertThat(tag).startsWith("W/\""))
+                .expectBody().jsonPath("$.movieDtos[0].posterUrl").exists()
+                .returnResult().getResponseHeaders().getETag();
+
+        client.get().uri("/api/v1/movie/allMoviesPage").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        //Compact drops what the client can derive, but keeps the rest
+        client.get().uri("/api/v1/movie/allMoviesPage?view=compact").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.movieDtos[0].posterUrl").doesNotExist()
+                .jsonPath("$.movieDtos[0].poster").exists()
+                .jsonPath("$.totalElements").exists();
+
+        addMovie("Changed", "changed poster".getBytes(StandardCharsets.UTF_8));
+        client.get().uri("/api/v1/movie/allMoviesPage").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, tag -> assertThat(tag).isNotEqualTo(etag));
+    }
+
+    @Test
+    void outOfRangePagingIsABadRequest() {
+        client.get().uri("/api/v1/movie/allMoviesPage?pageSize=0").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.detail").value(detail -> assertThat(detail.toString()).contains("pageSize"));
+        client.get().uri("/api/v1/movie/allMoviesPageSort?pageNumber=-1").exchange()
+                .expectStatus().isBadRequest();
+        client.get().uri("/api/v1/movie/allMoviesScroll?pageSize=" + Integer.MAX_VALUE).exchange()
+                .expectStatus().isBadRequest();
+        for (String query : List.of("pageSize=-1", "pageNumber=-1", "pageSize=" + Integer.MAX_VALUE, "facetLimit=" + Integer.MAX_VALUE)) {
+            client.get().uri("/api/v1/movie/browse?" + query).exchange()
+                    .expectStatus().isBadRequest();
+        }
+    }
+
+    @Test
+    void emptyPosterPartIsRejectedOnAddAndIgnoredOnUpdate() {
+        MultipartBodyBuilder empty = new MultipartBodyBuilder();
+        empty.part("file", new ByteArrayResource(new byte[0])).filename("empty.png");
+        empty.part("movieDto", "{\"title\":\"Empty\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"A\"],\"releaseYear\":2024}");
+        client.post().uri("/api/v1/movie/add-movie")
+                .body(BodyInserters.fromMultipartData(empty.build()))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        MovieDto added = addMovie("Kept", "kept poster".getBytes(StandardCharsets.UTF_8));
+        MultipartBodyBuilder update = new MultipartBodyBuilder();
+        update.part("file", new ByteArrayResource(new byte[0])).filename("empty.png");
+        update.part("movieDtoObj", "{\"title\":\"Renamed\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"A\"],\"releaseYear\":2024}");
+        client.put().uri("/api/v1/movie/update/{id}", added.getMovieId())
+                .body(BodyInserters.fromMultipartData(update.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Renamed")
+                .jsonPath("$.poster").isEqualTo(added.getPoster());
+    }
+
+    @Test
+    void exportWalksEveryPageAndLetsGoOfTheBlockingPoolBetweenThem() {
+        List<Integer> added = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            added.add(addMovie("Exported" + i, ("exported poster " + i).getBytes(StandardCharsets.UTF_8)).getMovieId());
+        }
+
+        client.get().uri("/api/v1/movie/all").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectBodyList(MovieDto.class).value(movies ->
+                        assertThat(movies).extracting(MovieDto::getMovieId).isSorted().doesNotHaveDuplicates().containsAll(added));
+
+        //A client that has stopped reading mid-export must not keep the only blocking thread from anyone else
+        List<MovieDto> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<MovieDto> stalledClient = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(MovieDto movie) {
+                received.add(movie);
+            }
+        };
+        controller.exportAllMoviesHandler().subscribe(stalledClient);
+        await().atMost(Duration.ofSeconds(10)).until(() -> !received.isEmpty());
+
+        assertThat(controller.getMovieHandler(added.get(0)).block(Duration.ofSeconds(10)).getBody().getTitle()).isEqualTo("Exported0");
+        stalledClient.dispose();
+    }
+
+    @Test
+    void missingMovieIsNotFound() {
+        client.get().uri("/api/v1/movie/{id}", Integer.MAX_VALUE).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private MovieDto addMovie(String title, byte[] poster) {
+        MultipartBodyBuilder body = new MultipartBodyBuilder();
+        body.part("file", new ByteArrayResource(poster)).filename(title.toLowerCase() + ".png");
+        body.part("movieDto", "{\"title\":\"" + title + "\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"A\"],\"releaseYear\":2024}");
+
+        return client.post().uri("/api/v1/movie/add-movie")
+                .body(BodyInserters.fromMultipartData(body.build()))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(MovieDto.class).returnResult().getResponseBody();
+    }
+}
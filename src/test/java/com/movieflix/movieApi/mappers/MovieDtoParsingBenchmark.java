@@ -0,0 +1,43 @@
+package com.movieflix.movieApi.mappers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.movieflix.movieApi.benchmark.BenchmarkData;
+import com.movieflix.movieApi.dto.MovieDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the movieDto multipart part, as add-movie and update do it for every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieDtoParsingBenchmark {
+
+    private MovieMapper movieMapper;
+
+    private String movieDto;
+
+    @Setup
+    public void setUp() {
+        movieMapper = new MovieMapper(Jackson2ObjectMapperBuilder.json().build(), BenchmarkData.BASE_URL);
+        movieDto = BenchmarkData.movieDtoJson();
+    }
+
+    @Benchmark
+    public MovieDto readDto() throws JsonProcessingException {
+        return movieMapper.readDto(movieDto);
+    }
+
+    //What the controllers did before: a new ObjectMapper per request, so no deserializer was ever reused
+    @Benchmark
+    public MovieDto readDtoBaseline() throws JsonProcessingException {
+        return new ObjectMapper().readValue(movieDto, MovieDto.class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.movieflix.movieApi.mappers;
+
+import com.movieflix.movieApi.benchmark.BenchmarkData;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.entities.Movie;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to MovieDto mapping for one page, against the inline mapping MovieMapper replaced, kept here as a baseline.
+ * Run with -Djmh.args="-prof gc" to see gc.alloc.rate.norm, the bytes allocated per page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieMapperBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private MovieMapper movieMapper;
+
+    private List<Movie> movies;
+
+    @Setup
+    public void setUp() {
+        movieMapper = new MovieMapper(Jackson2ObjectMapperBuilder.json().build(), BenchmarkData.BASE_URL);
+        movies = BenchmarkData.movies(pageSize);
+    }
+
+    @Benchmark
+    public List<MovieDto> mapPage() {
+        return movieMapper.toDtos(movies);
+    }
+
+    //Growable list, a HashSet copy of the cast and the base url concatenated for every movie
+    @Benchmark
+    public List<MovieDto> mapPageBaseline() {
+        String baseUrl = BenchmarkData.BASE_URL;
+        List<MovieDto> movieDtos = new ArrayList<>();
+        for (Movie movie : movies) {
+            String posterUrl = baseUrl + "/file/" + movie.getPoster();
+            movieDtos.add(new MovieDto(movie.getMovieId(), movie.getTitle(), movie.getDirector(), movie.getStudio(),
+                    movie.getMovieCast() == null ? null : new HashSet<>(movie.getMovieCast()), movie.getReleaseYear(),
+                    movie.getPoster(), posterUrl));
+        }
+        return movieDtos;
+    }
+}
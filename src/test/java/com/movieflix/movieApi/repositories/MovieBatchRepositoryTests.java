@@ -0,0 +1,68 @@
+package com.movieflix.movieApi.repositories;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.entities.Movie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class MovieBatchRepositoryTests {
+
+    @Autowired
+    private MovieBatchRepository movieBatchRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Test
+    void insertedMoviesAndCastAreVisibleThroughJpa() {
+        List<MovieDto> movies = List.of(
+                new MovieDto(null, "First", "Director A", "Studio A", Set.of("Ann", "Bob"), 2001, "first.png", null),
+                new MovieDto(null, "Second", "Director B", "Studio B", null, 2002, "second.png", null));
+
+        List<Integer> ids = movieBatchRepository.insertMovies(movies);
+
+        assertThat(ids).hasSize(2).doesNotHaveDuplicates();
+        Movie first = movieRepository.findById(ids.get(0)).orElseThrow();
+        assertThat(first.getTitle()).isEqualTo("First");
+        assertThat(first.getMovieCast()).containsExactlyInAnyOrder("Ann", "Bob");
+        Movie second = movieRepository.findById(ids.get(1)).orElseThrow();
+        assertThat(second.getPoster()).isEqualTo("second.png");
+        assertThat(second.getMovieCast()).isEmpty();
+    }
+
+    @Test
+    void updatedAndDeletedMoviesAreVisibleThroughJpa() {
+        List<Integer> ids = movieBatchRepository.insertMovies(List.of(
+                new MovieDto(null, "First", "Director A", "Studio A", Set.of("Ann"), 2001, "shared.png", null),
+                new MovieDto(null, "Second", "Director B", "Studio B", Set.of("Bob"), 2002, "shared.png", null)));
+
+        assertThat(movieBatchRepository.lockMovies(List.of(ids.get(0), ids.get(1), -1)))
+                .containsOnlyKeys(ids.get(0), ids.get(1))
+                .extractingByKey(ids.get(0)).extracting(MovieBatchRepository.LockedMovie::poster).isEqualTo("shared.png");
+
+        movieBatchRepository.updateMovies(List.of(
+                new MovieDto(ids.get(0), "Renamed", "Director C", "Studio C", Set.of("Cid", "Dee"), 2011, "ignored.png", null)));
+        movieBatchRepository.deleteMovies(List.of(ids.get(1)));
+
+        Movie updated = movieRepository.findById(ids.get(0)).orElseThrow();
+        assertThat(updated.getTitle()).isEqualTo("Renamed");
+        assertThat(updated.getReleaseYear()).isEqualTo(2011);
+        assertThat(updated.getPoster()).isEqualTo("shared.png");
+        assertThat(updated.getMovieCast()).containsExactlyInAnyOrder("Cid", "Dee");
+        assertThat(movieRepository.existsById(ids.get(1))).isFalse();
+        assertThat(movieBatchRepository.countPosterReferences(List.of("shared.png", "gone.png")))
+                .isEqualTo(Map.of("shared.png", 1L));
+    }
+}
@@ -0,0 +1,78 @@
+package com.movieflix.movieApi.repositories;
+
+import com.movieflix.movieApi.exceptions.InvalidSortFieldException;
+import com.movieflix.movieApi.metrics.SqlStatementMetrics;
+import com.movieflix.movieApi.service.MovieService;
+import com.movieflix.movieApi.utils.AppConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Explains the SQL Hibernate actually issues for a sorted page, so a query or migration change that falls back
+ * to sorting the whole table fails here rather than in production.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieQueryPlanTests {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    //Every statement Hibernate prepares passes through the inspector, which makes it a convenient place to capture them
+    @SpyBean
+    private SqlStatementMetrics sqlStatementMetrics;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    //H2 cannot walk an index backwards, so only ascending plans are checked here; MySQL serves descending pages
+    //from the same indexes with a backward index scan
+    @Test
+    void everySortFieldPagesThroughAnIndex() {
+        for (String field : AppConstants.SORT_FIELDS) {
+            clearInvocations(sqlStatementMetrics);
+            movieService.getAllMoviesWithPagination(2, 20, field, "asc");
+
+            String plan = jdbcTemplate.queryForObject("explain " + pageQuery(), String.class, 40, 20);
+            assertThat(plan).as(field).contains("index sorted");
+            //The cast comes from the covering index, not from the movie_cast rows
+            assertThat(plan).as(field).contains("public.idx_movie_cast_movie");
+        }
+    }
+
+    @Test
+    void unindexedSortFieldsAreRejected() {
+        assertThatThrownBy(() -> movieService.getAllMoviesWithPagination(0, 20, "poster", "asc"))
+                .isInstanceOf(InvalidSortFieldException.class);
+    }
+
+    private String pageQuery() {
+        ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(sqlStatementMetrics, atLeastOnce()).inspect(statements.capture());
+        return statements.getAllValues().stream()
+                .filter(sql -> sql.contains("order by"))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,85 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.FacetCount;
+import com.movieflix.movieApi.dto.FacetFilter;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieFacetIndexTests {
+
+    private static final FacetFilter NO_FILTER = new FacetFilter(null, null, null, null, null);
+
+    private MovieFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MovieFacetIndex();
+        index.onMovieChanged(MovieChangedEvent.saved(movie(1, 1999, "Warner Bros", "Lana Wachowski", "Keanu Reeves", "Carrie-Anne Moss")));
+        index.onMovieChanged(MovieChangedEvent.saved(movie(2, 2014, "Lionsgate", "Chad Stahelski", "Keanu Reeves")));
+        index.onMovieChanged(MovieChangedEvent.saved(movie(3, 2001, "UGC", "Jean-Pierre Jeunet", "Audrey Tautou")));
+        index.onMovieChanged(MovieChangedEvent.saved(movie(4, 2003, "Warner Bros", "Lana Wachowski", "Keanu Reeves", "Hugo Weaving")));
+    }
+
+    @Test
+    void unfilteredCountsCoverTheWholeCatalogue() {
+        MovieFacetIndex.Result result = index.query(NO_FILTER, 0, 10, 2);
+
+        assertThat(result.movieIds()).containsExactly(1, 2, 3, 4);
+        assertThat(result.releaseYears()).containsExactly(Map.entry(1999, 1), Map.entry(2001, 1), Map.entry(2003, 1), Map.entry(2014, 1));
+        assertThat(result.studios()).containsExactly(new FacetCount("Warner Bros", 2), new FacetCount("Lionsgate", 1));
+        assertThat(result.cast()).first().isEqualTo(new FacetCount("Keanu Reeves", 3));
+    }
+
+    @Test
+    void filtersIntersectAndCountOnlyTheMatches() {
+        MovieFacetIndex.Result result = index.query(new FacetFilter(2000, 2020, null, null, "Keanu Reeves"), 0, 10, 10);
+
+        assertThat(result.movieIds()).containsExactly(2, 4);
+        assertThat(result.studios()).containsExactly(new FacetCount("Lionsgate", 1), new FacetCount("Warner Bros", 1));
+        assertThat(result.cast()).containsExactly(new FacetCount("Keanu Reeves", 2), new FacetCount("Hugo Weaving", 1));
+
+        assertThat(index.query(new FacetFilter(null, null, "UGC", "Lana Wachowski", null), 0, 10, 10).totalElements()).isZero();
+        assertThat(index.query(new FacetFilter(null, null, "Unknown", null, null), 0, 10, 10).movieIds()).isEmpty();
+    }
+
+    @Test
+    void pagesWalkMatchesInIdOrder() {
+        MovieFacetIndex.Result second = index.query(NO_FILTER, 1, 3, 10);
+
+        assertThat(second.movieIds()).containsExactly(4);
+        assertThat(second.totalElements()).isEqualTo(4);
+    }
+
+    @Test
+    void oversizedRequestsAreBoundedByTheMatches() {
+        MovieFacetIndex.Result everything = index.query(NO_FILTER, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertThat(everything.movieIds()).containsExactly(1, 2, 3, 4);
+        assertThat(everything.cast()).hasSize(4);
+
+        assertThat(index.query(NO_FILTER, Integer.MAX_VALUE, Integer.MAX_VALUE, 10).movieIds()).isEmpty();
+    }
+
+    @Test
+    void updatesAndRemovalsMoveTheCounts() {
+        index.onMovieChanged(MovieChangedEvent.saved(movie(2, 2017, "Warner Bros", "Chad Stahelski", "Keanu Reeves")));
+        index.onMovieChanged(MovieChangedEvent.deleted(1));
+
+        MovieFacetIndex.Result result = index.query(NO_FILTER, 0, 10, 10);
+        assertThat(result.studios()).containsExactly(new FacetCount("Warner Bros", 2), new FacetCount("UGC", 1));
+        assertThat(result.releaseYears()).doesNotContainKeys(1999, 2014).containsEntry(2017, 1);
+        assertThat(result.directors()).containsExactly(new FacetCount("Chad Stahelski", 1),
+                new FacetCount("Jean-Pierre Jeunet", 1), new FacetCount("Lana Wachowski", 1));
+        assertThat(index.query(new FacetFilter(null, null, null, null, "Carrie-Anne Moss"), 0, 10, 10).movieIds()).isEmpty();
+    }
+
+    private MovieDto movie(int id, int year, String studio, String director, String... cast) {
+        return new MovieDto(id, "Movie " + id, director, studio, Set.of(cast), year, "poster" + id + ".png", null);
+    }
+}
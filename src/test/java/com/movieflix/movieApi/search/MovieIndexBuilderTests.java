@@ -0,0 +1,80 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.FacetFilter;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import com.movieflix.movieApi.service.MovieService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class MovieIndexBuilderTests {
+
+    private final MovieSearchIndex searchIndex = new MovieSearchIndex();
+
+    private final MovieSuggester suggester = new MovieSuggester();
+
+    private final MovieFacetIndex facetIndex = new MovieFacetIndex();
+
+    private final List<MovieIndex> indexes = List.of(searchIndex, suggester, facetIndex);
+
+    @Test
+    void everyIndexIsFilledFromOneExport() {
+        MovieService movieService = exporting(consumer -> {
+            consumer.accept(movie(1, "The Matrix"));
+            consumer.accept(movie(2, "John Wick"));
+        });
+
+        new MovieIndexBuilder(movieService, indexes).start();
+
+        verify(movieService, times(1)).exportAllMovies(any());
+        assertThat(indexes).allSatisfy(index -> assertThat(index.size()).isEqualTo(2));
+    }
+
+    @Test
+    void rowsExportedBeforeAConcurrentChangeDoNotUndoIt() {
+        MovieService movieService = exporting(consumer -> {
+            //Both rows were read before the changes below committed, but reach the indexes after them
+            MovieDto matrix = movie(1, "The Matrix");
+            MovieDto wick = movie(2, "John Wick");
+            indexes.forEach(index -> index.onMovieChanged(MovieChangedEvent.saved(movie(1, "The Matrix Reloaded"))));
+            indexes.forEach(index -> index.onMovieChanged(MovieChangedEvent.deleted(2)));
+            consumer.accept(matrix);
+            consumer.accept(wick);
+        });
+
+        new MovieIndexBuilder(movieService, indexes).start();
+
+        assertThat(searchIndex.search("reloaded", 10)).containsExactly(1);
+        assertThat(searchIndex.search("wick", 10)).isEmpty();
+        assertThat(suggester.suggest("john", 10)).isEmpty();
+        assertThat(facetIndex.query(new FacetFilter(null, null, null, null, null), 0, 10, 10).movieIds()).containsExactly(1);
+
+        //Once built, changes apply in whatever order they come
+        searchIndex.put(movie(2, "John Wick"), 0);
+        assertThat(searchIndex.search("wick", 10)).containsExactly(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private MovieService exporting(Consumer<Consumer<MovieDto>> rows) {
+        MovieService movieService = mock(MovieService.class);
+        doAnswer(invocation -> {
+            rows.accept(invocation.getArgument(0, Consumer.class));
+            return null;
+        }).when(movieService).exportAllMovies(any());
+        return movieService;
+    }
+
+    private static MovieDto movie(int id, String title) {
+        return new MovieDto(id, title, "Director " + id, "Studio", Set.of("Actor " + id), 2000, "poster" + id + ".png", null);
+    }
+}
@@ -0,0 +1,57 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieSearchIndexTests {
+
+    private MovieSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MovieSearchIndex();
+        index.onMovieChanged(MovieChangedEvent.saved(movie(1, "The Matrix", "Lana Wachowski", "Warner Bros", "Keanu Reeves", "Carrie-Anne Moss")));
+        index.onMovieChanged(MovieChangedEvent.saved(movie(2, "John Wick", "Chad Stahelski", "Lionsgate", "Keanu Reeves")));
+        index.onMovieChanged(MovieChangedEvent.saved(movie(3, "Amélie", "Jean-Pierre Jeunet", "UGC", "Audrey Tautou")));
+    }
+
+    @Test
+    void allQueryTokensMustMatch() {
+        assertThat(index.search("keanu reeves", 10)).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.search("keanu matrix", 10)).containsExactly(1);
+        assertThat(index.search("keanu audrey", 10)).isEmpty();
+    }
+
+    @Test
+    void prefixesMatchAndRankBelowWholeWords() {
+        index.onMovieChanged(MovieChangedEvent.saved(movie(4, "Wickedly", "Someone", "Indie")));
+
+        assertThat(index.search("wick", 10)).containsExactly(2, 4);
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        assertThat(index.search("AMELIE", 10)).containsExactly(3);
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceOldTerms() {
+        index.onMovieChanged(MovieChangedEvent.saved(movie(2, "John Wick: Chapter 2", "Chad Stahelski", "Lionsgate", "Ian McShane")));
+        assertThat(index.search("keanu", 10)).containsExactly(1);
+        assertThat(index.search("chapter", 10)).containsExactly(2);
+
+        index.onMovieChanged(MovieChangedEvent.deleted(1));
+        assertThat(index.search("matrix", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    private static MovieDto movie(int id, String title, String director, String studio, String... cast) {
+        return new MovieDto(id, title, director, studio, Set.of(cast), 2000, "poster" + id + ".png", null);
+    }
+}
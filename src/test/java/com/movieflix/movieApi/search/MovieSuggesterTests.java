@@ -0,0 +1,69 @@
+package com.movieflix.movieApi.search;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.Suggestion;
+import com.movieflix.movieApi.events.MovieChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MovieSuggesterTests {
+
+    private MovieSuggester suggester;
+
+    @BeforeEach
+    void setUp() {
+        suggester = new MovieSuggester();
+        suggester.onMovieChanged(MovieChangedEvent.saved(movie(1, "The Matrix", "Lana Wachowski", "Keanu Reeves")));
+        suggester.onMovieChanged(MovieChangedEvent.saved(movie(2, "John Wick", "Chad Stahelski", "Keanu Reeves")));
+        suggester.onMovieChanged(MovieChangedEvent.saved(movie(3, "Mad Max", "George Miller", "Tom Hardy")));
+    }
+
+    @Test
+    void matchesFromTheStartOfAnyWord() {
+        assertThat(suggester.suggest("reev", 5)).extracting(Suggestion::text).containsExactly("Keanu Reeves");
+        assertThat(suggester.suggest("ma", 5)).extracting(Suggestion::text).contains("The Matrix", "Mad Max");
+    }
+
+    @Test
+    void viewsAndSharedPhrasesRaiseTheWeight() {
+        assertThat(suggester.suggest("ma", 1)).extracting(Suggestion::text).containsExactly("Mad Max");
+
+        suggester.recordView(1);
+        suggester.recordView(1);
+        assertThat(suggester.suggest("ma", 1)).extracting(Suggestion::text).containsExactly("The Matrix");
+        //Keanu Reeves is in two movies, one of them viewed twice
+        assertThat(suggester.suggest("keanu", 1)).extracting(Suggestion::weight).containsExactly(4L);
+    }
+
+    @Test
+    void weightFollowsViewsThroughUpdatesAndRemovals() {
+        suggester.recordView(2);
+        suggester.onMovieChanged(MovieChangedEvent.saved(movie(2, "John Wick 2", "Chad Stahelski", "Keanu Reeves")));
+        assertThat(suggester.suggest("keanu", 1)).extracting(Suggestion::weight).containsExactly(3L);
+        suggester.onMovieChanged(MovieChangedEvent.deleted(2));
+        assertThat(suggester.suggest("keanu", 1)).extracting(Suggestion::weight).containsExactly(1L);
+    }
+
+    @Test
+    void hugeLimitsAreClamped() {
+        assertThat(suggester.suggest("m", Integer.MAX_VALUE)).extracting(Suggestion::text)
+                .containsExactlyInAnyOrder("The Matrix", "Mad Max", "George Miller");
+    }
+
+    @Test
+    void removingTheLastMovieDropsThePhrase() {
+        suggester.onMovieChanged(MovieChangedEvent.deleted(2));
+        assertThat(suggester.suggest("keanu", 5)).extracting(Suggestion::weight).containsExactly(1L);
+        suggester.onMovieChanged(MovieChangedEvent.deleted(1));
+        assertThat(suggester.suggest("keanu", 5)).isEmpty();
+        assertThat(suggester.suggest("wick", 5)).isEmpty();
+    }
+
+    private static MovieDto movie(int id, String title, String director, String... cast) {
+        return new MovieDto(id, title, director, "Studio", Set.of(cast), 2000, "poster" + id + ".png", null);
+    }
+}
@@ -0,0 +1,155 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.BulkIngestResponse;
+import com.movieflix.movieApi.dto.BulkItemResult;
+import com.movieflix.movieApi.dto.BulkMutationResponse;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.exceptions.BatchTooLargeException;
+import com.movieflix.movieApi.repositories.MovieBatchRepository;
+import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.utils.AppConstants;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkMovieServiceImplTests {
+
+    @Autowired
+    private BulkMovieService bulkMovieService;
+
+    @Autowired
+    private MovieBatchRepository movieBatchRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    @Value("${project.poster}")
+    private String path;
+
+    @Test
+    void everyItemGetsItsOwnStatus() {
+        List<Integer> ids = movieBatchRepository.insertMovies(List.of(
+                new MovieDto(null, "First", "D", "S", Set.of("Ann"), 2001, "first.png", null),
+                new MovieDto(null, "Second", "D", "S", Set.of("Bob"), 2002, "second.png", null)));
+
+        BulkMutationResponse response = bulkMovieService.updateMovies(List.of(
+                new MovieDto(ids.get(0), "First, recut", "D", "S", Set.of("Ann", "Cid"), 2003, null, null),
+                new MovieDto(Integer.MAX_VALUE, "Missing", "D", "S", null, 2000, null, null),
+                new MovieDto(ids.get(1), "", "D", "S", null, 2002, null, null),
+                new MovieDto(ids.get(0), "Twice", "D", "S", null, 2004, null, null)));
+
+        assertThat(response.items()).extracting(BulkItemResult::status).containsExactly(
+                BulkItemResult.Status.UPDATED, BulkItemResult.Status.NOT_FOUND, BulkItemResult.Status.FAILED, BulkItemResult.Status.FAILED);
+        assertThat(response.succeeded()).isEqualTo(1);
+        assertThat(response.items().get(0).poster()).isEqualTo("first.png");
+        assertThat(movieRepository.findById(ids.get(0)).orElseThrow().getTitle()).isEqualTo("First, recut");
+        assertThat(movieRepository.findById(ids.get(1)).orElseThrow().getTitle()).isEqualTo("Second");
+    }
+
+    @Test
+    void postersAreReleasedOnceNothingReferencesThem() throws IOException {
+        String shared = storePoster();
+        String own = storePoster();
+        List<Integer> ids = movieBatchRepository.insertMovies(List.of(
+                new MovieDto(null, "Keeps", "D", "S", null, 2001, shared, null),
+                new MovieDto(null, "Goes", "D", "S", null, 2002, shared, null),
+                new MovieDto(null, "Goes too", "D", "S", Set.of("Ann"), 2003, own, null)));
+
+        BulkMutationResponse response = bulkMovieService.deleteMovies(List.of(ids.get(1), ids.get(2), -1));
+
+        assertThat(response.items()).extracting(BulkItemResult::status).containsExactly(
+                BulkItemResult.Status.DELETED, BulkItemResult.Status.DELETED, BulkItemResult.Status.NOT_FOUND);
+        assertThat(movieRepository.findAllById(ids)).hasSize(1);
+        assertThat(Files.exists(fileService.getResourcePath(path, shared))).isTrue();
+        assertThatThrownBy(() -> fileService.getResourcePath(path, own)).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void itemsOverAColumnLimitAreRejectedWithoutTakingTheBatchDown() throws IOException {
+        String manifest = "["
+                + "{\"title\":\"Fits\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"Ann\"],\"releaseYear\":2001,\"poster\":\"p.png\"},"
+                + "{\"title\":\"" + "T".repeat(AppConstants.MAX_TITLE_LENGTH + 1) + "\",\"director\":\"D\",\"studio\":\"S\",\"releaseYear\":2002,\"poster\":\"p.png\"},"
+                + "{\"title\":\"Long cast\",\"director\":\"D\",\"studio\":\"S\",\"movieCast\":[\"" + "C".repeat(AppConstants.MAX_TEXT_LENGTH + 1) + "\"],\"releaseYear\":2003,\"poster\":\"p.png\"}"
+                + "]";
+        long version = catalogueVersion.current();
+
+        BulkIngestResponse response = ingest(manifest);
+
+        assertThat(response.items()).extracting(BulkItemResult::status).containsExactly(
+                BulkItemResult.Status.CREATED, BulkItemResult.Status.REJECTED, BulkItemResult.Status.REJECTED);
+        assertThat(response.items().get(1).message()).contains("Title");
+        assertThat(movieRepository.findById(response.items().get(0).movieId())).isPresent();
+        assertThat(catalogueVersion.current()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void aBatchThatWritesNothingLeavesTheCatalogueVersionAlone() throws IOException {
+        String manifest = "[{\"title\":\"" + "T".repeat(AppConstants.MAX_TITLE_LENGTH + 1)
+                + "\",\"director\":\"D\",\"studio\":\"S\",\"releaseYear\":2002,\"poster\":\"p.png\"}]";
+        long version = catalogueVersion.current();
+
+        assertThat(ingest(manifest).created()).isZero();
+        assertThat(bulkMovieService.deleteMovies(List.of(-1)).succeeded()).isZero();
+        assertThat(catalogueVersion.current()).isEqualTo(version);
+    }
+
+    @Test
+    void oversizedBatchesAreRejected() {
+        Integer[] ids = new Integer[AppConstants.MAX_MUTATION_BATCH + 1];
+        Arrays.fill(ids, 1);
+
+        assertThatThrownBy(() -> bulkMovieService.deleteMovies(Arrays.asList(ids))).isInstanceOf(BatchTooLargeException.class);
+        assertThatThrownBy(() -> bulkMovieService.updateMovies(Collections.nCopies(ids.length, new MovieDto())))
+                .isInstanceOf(BatchTooLargeException.class);
+    }
+
+    private BulkIngestResponse ingest(String manifest) throws IOException {
+        Path archive = Files.createTempFile("posters-", ".zip");
+        try {
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+                zip.putNextEntry(new ZipEntry("p.png"));
+                zip.write(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            return bulkMovieService.addMovies(new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8)), archive);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    //Unique content so no other test shares the blob, unpinned as an ingest would
+    private String storePoster() throws IOException {
+        String poster = fileService.storeFile(path, "poster.png",
+                new ByteArrayInputStream(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)), null);
+        fileService.unpinFile(poster);
+        return poster;
+    }
+}
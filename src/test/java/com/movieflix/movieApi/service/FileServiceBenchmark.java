@@ -0,0 +1,101 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.CachedPoster;
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.metrics.PosterMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Poster write and read throughput for the sample posters in posters/, against a scratch poster directory.
+ * Writes include the fsync before the rename, so their numbers depend heavily on the disk the run is on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileServiceBenchmark {
+
+    @Param({"sample-hut-400x300.png", "pngegg.png", "file_example_PNG_500kB.png"})
+    private String sample;
+
+    private Path posters;
+
+    private String path;
+
+    private FileServiceImpl fileService;
+
+    private PosterCache posterCache;
+
+    private byte[] content;
+
+    private String stored;
+
+    private long counter;
+
+    @Setup
+    public void setUp() throws IOException {
+        posters = Files.createTempDirectory("poster-benchmark-");
+        path = posters.toString();
+        posterCache = new PosterCache(DataSize.ofMegabytes(64), DataSize.ofMegabytes(2));
+        fileService = new FileServiceImpl(posterCache, mock(PosterVariantService.class), new PosterMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(fileService, "maxSize", DataSize.ofMegabytes(20));
+        ReflectionTestUtils.setField(fileService, "bufferSize", DataSize.ofKilobytes(64));
+        content = Files.readAllBytes(Paths.get("posters", sample));
+        stored = fileService.storeFile(path, sample, new ByteArrayInputStream(content), null);
+        fileService.unpinFile(stored);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(posters);
+    }
+
+    //New content every time: hash, write, fsync and rename into a shard, then release it again so the disk doesn't fill
+    @Benchmark
+    public String storeNewPoster() throws IOException {
+        byte[] suffix = ByteBuffer.allocate(Long.BYTES).putLong(counter++).array();
+        InputStream upload = new SequenceInputStream(new ByteArrayInputStream(content), new ByteArrayInputStream(suffix));
+        String name = fileService.storeFile(path, sample, upload, null);
+        fileService.unpinFile(name);
+        fileService.releaseFile(path, name, () -> 0);
+        return name;
+    }
+
+    //Content that is already stored: still spooled and hashed, but no rename
+    @Benchmark
+    public String storeDuplicatePoster() throws IOException {
+        String name = fileService.storeFile(path, sample, new ByteArrayInputStream(content), null);
+        fileService.unpinFile(name);
+        return name;
+    }
+
+    //What a cache miss costs the poster endpoint: resolve the blob and read it into a cache buffer
+    @Benchmark
+    public CachedPoster readPosterUncached() throws IOException {
+        posterCache.invalidate(stored);
+        return posterCache.load(stored, () -> fileService.getResourcePath(path, stored));
+    }
+
+    @Benchmark
+    public CachedPoster readPosterCached() throws IOException {
+        return posterCache.load(stored, () -> fileService.getResourcePath(path, stored));
+    }
+}
@@ -0,0 +1,179 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.exceptions.ChecksumMismatchException;
+import com.movieflix.movieApi.exceptions.PosterTooLargeException;
+import com.movieflix.movieApi.metrics.PosterMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+
+class FileServiceImplTests {
+
+    @TempDir
+    Path posters;
+
+    private FileServiceImpl fileService;
+
+    private String path;
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        fileService = new FileServiceImpl(mock(PosterCache.class), mock(PosterVariantService.class), new PosterMetrics(registry));
+        ReflectionTestUtils.setField(fileService, "maxSize", DataSize.ofBytes(16));
+        ReflectionTestUtils.setField(fileService, "bufferSize", DataSize.ofBytes(4));
+        path = posters.toString();
+    }
+
+    @Test
+    void identicalContentIsStoredOnceInItsShard() throws IOException {
+        String first = store("matrix.PNG", "same bytes");
+        String second = store("matrix-copy.png", "same bytes");
+        String other = store("wick.png", "other bytes");
+
+        assertThat(first).isEqualTo(second).matches("[0-9a-f]{64}\\.png");
+        assertThat(other).isNotEqualTo(first);
+        Path blob = fileService.getResourcePath(path, first);
+        assertThat(posters.relativize(blob).toString())
+                .isEqualTo(first.substring(0, 2) + "/" + first.substring(2, 4) + "/" + first);
+        assertThat(Files.readString(blob)).isEqualTo("same bytes");
+    }
+
+    @Test
+    void blobIsOnlyDeletedWhenUnreferencedAndUnpinned() throws IOException {
+        String poster = store("matrix.png", "poster");
+
+        fileService.releaseFile(path, poster, () -> 1);
+        assertThat(Files.exists(fileService.getResourcePath(path, poster))).isTrue();
+
+        //Still pinned by the upload that stored it
+        fileService.releaseFile(path, poster, () -> 0);
+        assertThat(Files.exists(fileService.getResourcePath(path, poster))).isTrue();
+
+        fileService.unpinFile(poster);
+        fileService.releaseFile(path, poster, () -> 0);
+        assertThat(Files.exists(posters.resolve(poster.substring(0, 2)).resolve(poster.substring(2, 4)).resolve(poster))).isFalse();
+    }
+
+    @Test
+    void referencesAreCountedUnderThePinLock() throws IOException {
+        String poster = store("matrix.png", "poster");
+        AtomicInteger counted = new AtomicInteger();
+
+        //Pinned: nothing is counted, nothing is deleted
+        fileService.releaseFile(path, poster, counted::incrementAndGet);
+        assertThat(counted).hasValue(0);
+
+        //Unpinned, but a row committed before the lock was taken still holds on to it
+        fileService.unpinFile(poster);
+        fileService.releaseFile(path, poster, counted::incrementAndGet);
+        assertThat(counted).hasValue(1);
+        assertThat(Files.exists(fileService.getResourcePath(path, poster))).isTrue();
+    }
+
+    @Test
+    void slowReferenceCountsOnlyHoldUpTheirOwnPoster() throws Exception {
+        String released = store("matrix.png", "poster");
+        fileService.unpinFile(released);
+        CountDownLatch counting = new CountDownLatch(1);
+        CountDownLatch answer = new CountDownLatch(1);
+
+        //The count stands in for a slow query: it holds the poster's lock until answered
+        CompletableFuture<Void> release = CompletableFuture.runAsync(() -> {
+            try {
+                fileService.releaseFile(path, released, () -> {
+                    counting.countDown();
+                    awaitQuietly(answer);
+                    return 0;
+                });
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        assertThat(counting.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //Other posters are pinned and unpinned meanwhile; the one being counted has to wait
+        String other = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> store("wick.png", "other poster"));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> fileService.unpinFile(other));
+        CompletableFuture<String> sameName = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store("matrix-again.png", "poster");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(sameName).isNotDone();
+
+        answer.countDown();
+        release.get(5, TimeUnit.SECONDS);
+        assertThat(sameName.get(5, TimeUnit.SECONDS)).isEqualTo(released);
+    }
+
+    @Test
+    void rejectedUploadsLeaveNothingBehind() throws IOException {
+        assertThatThrownBy(() -> store("big.png", "more than sixteen bytes")).isInstanceOf(PosterTooLargeException.class);
+        assertThatThrownBy(() -> fileService.storeFile(path, "bad.png",
+                new ByteArrayInputStream("poster".getBytes(StandardCharsets.UTF_8)), "00".repeat(32)))
+                .isInstanceOf(ChecksumMismatchException.class);
+
+        try (Stream<Path> files = Files.walk(posters)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void uploadsAreTimedByOutcome() throws IOException {
+        store("matrix.png", "poster");
+        store("matrix-copy.png", "poster");
+        assertThatThrownBy(() -> store("big.png", "more than sixteen bytes")).isInstanceOf(PosterTooLargeException.class);
+
+        assertThat(registry.get("movieflix.poster.upload").tag("outcome", "stored").timer().count()).isEqualTo(1);
+        assertThat(registry.get("movieflix.poster.upload").tag("outcome", "duplicate").timer().count()).isEqualTo(1);
+        assertThat(registry.get("movieflix.poster.upload").tag("outcome", "too_large").timer().count()).isEqualTo(1);
+        assertThat(registry.get("movieflix.poster.upload.bytes").summary().totalAmount()).isEqualTo(12);
+    }
+
+    @Test
+    void legacyFlatPostersStillResolve() throws IOException {
+        Files.writeString(posters.resolve("legacy.png"), "old");
+
+        assertThat(fileService.getResourcePath(path, "legacy.png")).isEqualTo(posters.resolve("legacy.png"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String store(String filename, String content) throws IOException {
+        return fileService.storeFile(path, filename, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
@@ -0,0 +1,197 @@
+package com.movieflix.movieApi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.movieflix.movieApi.cache.CatalogueVersion;
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.MoviePageResponse;
+import com.movieflix.movieApi.dto.MovieScrollResponse;
+import com.movieflix.movieApi.entities.Movie;
+import com.movieflix.movieApi.exceptions.MovieNotFoundException;
+import com.movieflix.movieApi.repositories.MovieRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieServiceImplTests {
+
+    private static final int MOVIE_COUNT = 150;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        movieRepository.deleteAll();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < MOVIE_COUNT; i++) {
+            movies.add(new Movie(null, "Title " + i, "Director " + i, "Studio " + (i % 7),
+                    Set.of("Actor " + i, "Actor " + (i + 1)), 1950 + (i % 70), "poster" + i + ".png"));
+        }
+        movieRepository.saveAll(movies);
+
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void pageIsOneQueryWithoutHydratingEntities() {
+        MoviePageResponse page = movieService.getAllMoviesWithPagination(0, 100);
+
+        assertThat(page.movieDtos()).hasSize(100).allSatisfy(dto -> assertThat(dto.getMovieCast()).hasSize(2));
+        //page select with the cast aggregated + count
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void sortedPageIsOneQuery() {
+        MoviePageResponse page = movieService.getAllMoviesWithPagination(1, 100, "title", "desc");
+
+        assertThat(page.movieDtos()).hasSize(MOVIE_COUNT - 100).allSatisfy(dto -> assertThat(dto.getMovieCast()).hasSize(2));
+        assertThat(page.movieDtos()).extracting(MovieDto::getTitle).isSortedAccordingTo(Comparator.reverseOrder());
+        //the last page is partial so Spring Data skips the count
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pageReadBeforeAChangeIsNotServedAfterIt() {
+        long before = catalogueVersion.current();
+        MoviePageResponse stale = movieService.getAllMoviesWithPagination(0, 3);
+        movieRepository.deleteAll();
+        catalogueVersion.advance();
+
+        //A reader that started before the change caches what it read only after the caches were emptied
+        cacheManager.getCache("moviePages").put(List.of(before, 0, 3), stale);
+
+        assertThat(movieService.getAllMoviesWithPagination(0, 3).movieDtos()).isEmpty();
+    }
+
+    @Test
+    void movieIsServedFromTheCacheUntilItChanges() throws Exception {
+        Integer id = movieRepository.findAll().get(0).getMovieId();
+        //Stats outlive clear(), so only what this test adds is compared
+        CacheStats start = movieCacheStats();
+        movieService.getMovie(id);
+        statistics.clear();
+
+        MovieDto cached = movieService.getMovie(id);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(movieCacheStats().minus(start).hitCount()).isEqualTo(1);
+
+        cached.setTitle("Retitled");
+        movieService.updateMovie(id, cached, null, null, null);
+
+        assertThat(movieService.getMovie(id).getTitle()).isEqualTo("Retitled");
+        assertThat(movieCacheStats().minus(start).missCount()).isEqualTo(2);
+    }
+
+    @Test
+    void movieReadBeforeAChangeIsNotServedAfterIt() throws Exception {
+        Integer id = movieRepository.findAll().get(0).getMovieId();
+        long before = catalogueVersion.current();
+        MovieDto stale = movieService.getMovie(id);
+        movieService.deleteMovie(id);
+
+        //A reader that started before the delete caches what it read only after the delete evicted it
+        cacheManager.getCache("movies").put(List.of(before, id), stale);
+
+        assertThatThrownBy(() -> movieService.getMovie(id)).isInstanceOf(MovieNotFoundException.class);
+    }
+
+    @Test
+    void listingCachesAreBoundedByTheMoviesTheyHold() {
+        for (String name : List.of("moviePages", "movieLists")) {
+            Policy.Eviction<Object, Object> eviction = nativeCache(name).policy().eviction().orElseThrow();
+            assertThat(eviction.isWeighted()).isTrue();
+        }
+
+        movieService.getAllMoviesWithPagination(0, 100);
+        movieService.getAllMoviesWithPagination(1, 100);
+        nativeCache("moviePages").cleanUp();
+        assertThat(nativeCache("moviePages").policy().eviction().orElseThrow().weightedSize()).hasValue(MOVIE_COUNT);
+    }
+
+    @Test
+    void allMoviesAreOneQuery() {
+        List<MovieDto> movies = movieService.getAllMovies();
+
+        assertThat(movies).hasSize(MOVIE_COUNT);
+        assertThat(movies).filteredOn(dto -> dto.getTitle().equals("Title 7")).singleElement()
+                .satisfies(dto -> assertThat(dto.getMovieCast()).containsExactlyInAnyOrder("Actor 7", "Actor 8"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void exportStreamsEveryMovieFromOneQuery() {
+        List<MovieDto> exported = new ArrayList<>();
+        movieService.exportAllMovies(exported::add);
+
+        assertThat(exported).hasSize(MOVIE_COUNT).allSatisfy(dto -> assertThat(dto.getMovieCast()).hasSize(2));
+        assertThat(exported).extracting(MovieDto::getMovieId).isSorted();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void scrollWalksEveryMovieOnceWithoutCounting() {
+        List<MovieDto> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            MovieScrollResponse window = movieService.getAllMoviesWithScroll(cursor, 40, "releaseYear", "desc", false);
+            //seek select + one batched movie_cast select, no count
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            assertThat(window.totalElements()).isNull();
+            seen.addAll(window.movieDtos());
+            cursor = window.nextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).hasSize(MOVIE_COUNT);
+        assertThat(seen).extracting(MovieDto::getMovieId).doesNotHaveDuplicates();
+        assertThat(seen).extracting(MovieDto::getReleaseYear).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    private CacheStats movieCacheStats() {
+        return nativeCache("movies").stats();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(String name) {
+        return (Cache<Object, Object>) cacheManager.getCache(name).getNativeCache();
+    }
+}
@@ -0,0 +1,125 @@
+package com.movieflix.movieApi.service;
+
+import com.movieflix.movieApi.cache.PosterCache;
+import com.movieflix.movieApi.dto.PosterVariantInfo;
+import com.movieflix.movieApi.utils.PosterFormats;
+import com.movieflix.movieApi.utils.PosterPaths;
+import com.movieflix.movieApi.utils.PosterSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PosterVariantServiceImplTests {
+
+    private static final String POSTER = "a".repeat(64) + ".png";
+
+    @TempDir
+    Path posters;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private PosterCache posterCache;
+
+    private PosterVariantServiceImpl variantService;
+
+    private String path;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        posterCache = mock(PosterCache.class);
+        variantService = new PosterVariantServiceImpl(executor, posterCache);
+        ReflectionTestUtils.setField(variantService, "jpegQuality", 0.8f);
+        ReflectionTestUtils.setField(variantService, "baseUrl", "http://localhost:8080");
+        path = posters.toString();
+    }
+
+    @Test
+    void variantsAreRenderedWithoutUpscaling() throws IOException {
+        writePoster(400, 300);
+
+        variantService.scheduleVariants(path, POSTER);
+        executor.shutdown();
+
+        assertThat(variantService.getVariants(path, POSTER))
+                .extracting(PosterVariantInfo::size, PosterVariantInfo::width, PosterVariantInfo::height)
+                .containsExactly(
+                        tuple("thumb", 160, 120),
+                        tuple("small", 320, 240),
+                        tuple("full", 400, 300));
+        assertThat(variantService.getVariantPath(path, POSTER, PosterSize.MEDIUM)).isNull();
+        assertThat(variantService.getVariants(path, POSTER)).allSatisfy(variant -> {
+            assertThat(variant.contentType()).isEqualTo(MediaType.IMAGE_JPEG_VALUE);
+            assertThat(variant.bytes()).isPositive();
+        });
+    }
+
+    @Test
+    void missingVariantFallsBackAndIsRenderedForNextTime() throws IOException {
+        writePoster(400, 300);
+
+        //Not rendered yet: the caller serves the original, and the render is queued
+        assertThat(variantService.getVariantPath(path, POSTER, PosterSize.THUMB)).isNull();
+        executor.shutdown();
+
+        Path thumb = variantService.getVariantPath(path, POSTER, PosterSize.THUMB);
+        assertThat(thumb).isNotNull();
+        assertThat(ImageIO.read(thumb.toFile()).getWidth()).isEqualTo(160);
+    }
+
+    @Test
+    void noOriginalMeansNoVariantAndNoRender() {
+        assertThat(variantService.getVariantPath(path, POSTER, PosterSize.THUMB)).isNull();
+        assertThat(executor.getThreadPoolExecutor().getTaskCount()).isZero();
+    }
+
+    @Test
+    void deleteVariantsRemovesFilesAndCachedCopies() throws IOException {
+        writePoster(400, 300);
+        variantService.scheduleVariants(path, POSTER);
+        executor.shutdown();
+        assertThat(variantService.getVariants(path, POSTER)).isNotEmpty();
+
+        variantService.deleteVariants(path, POSTER);
+
+        assertThat(variantService.getVariants(path, POSTER)).isEmpty();
+        for (PosterSize size : PosterSize.values()) {
+            verify(posterCache, atLeastOnce()).invalidate(size.cacheKey(POSTER));
+        }
+    }
+
+    @Test
+    void acceptPicksBetweenVariantAndOriginal() {
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes(""), POSTER)).isTrue();
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes("image/webp,*/*;q=0.8"), POSTER)).isTrue();
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes("image/png"), POSTER)).isFalse();
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes("image/png, image/jpeg;q=0.5"), POSTER)).isFalse();
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes("image/jpeg, image/*;q=0.5"), POSTER)).isTrue();
+        assertThat(PosterFormats.prefersVariant(MediaType.parseMediaTypes("*/*, image/jpeg;q=0"), POSTER)).isFalse();
+    }
+
+    private void writePoster(int width, int height) throws IOException {
+        Path original = PosterPaths.resolve(posters, POSTER);
+        Files.createDirectories(original.getParent());
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+    }
+}
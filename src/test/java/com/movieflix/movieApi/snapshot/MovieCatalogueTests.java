@@ -0,0 +1,158 @@
+package com.movieflix.movieApi.snapshot;
+
+import com.movieflix.movieApi.dto.MovieDto;
+import com.movieflix.movieApi.dto.MoviePageResponse;
+import com.movieflix.movieApi.entities.Movie;
+import com.movieflix.movieApi.exceptions.MovieNotFoundException;
+import com.movieflix.movieApi.repositories.MovieRepository;
+import com.movieflix.movieApi.repositories.MovieRow;
+import com.movieflix.movieApi.service.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = {"project.snapshot.enabled=true", "project.snapshot.file=target/test-catalogue/movies.snapshot"})
+@ActiveProfiles("test")
+class MovieCatalogueTests {
+
+    private static final int MOVIE_COUNT = 60;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieCatalogue movieCatalogue;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics statistics;
+
+    private List<Integer> ids;
+
+    @BeforeEach
+    void setUp() {
+        movieRepository.deleteAll();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < MOVIE_COUNT; i++) {
+            movies.add(new Movie(null, "Title " + (i * 7 % MOVIE_COUNT), "Director " + (i % 5), "Studio " + (i % 3),
+                    Set.of("Actor " + i), 1950 + (i % 11), "poster" + i + ".png"));
+        }
+        ids = movieRepository.saveAll(movies).stream().map(Movie::getMovieId).toList();
+        movieCatalogue.refresh();
+
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void readsAreServedWithoutTheDatabase() {
+        MovieDto movie = movieService.getMovie(ids.get(3));
+        assertThat(movie.getTitle()).isEqualTo("Title 21");
+        assertThat(movie.getMovieCast()).containsExactly("Actor 3");
+        assertThat(movieService.getAllMovies()).hasSize(MOVIE_COUNT);
+        List<MoviePageResponse> pages = new ArrayList<>();
+        for (String field : List.of("movieId", "title", "director", "studio", "releaseYear")) {
+            pages.add(movieService.getAllMoviesWithPagination(1, 25, field, "desc"));
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(pages).allSatisfy(page -> assertThat(page.totalElements()).isEqualTo(MOVIE_COUNT));
+        assertThat(pages.get(3).movieDtos()).extracting(MovieDto::getMovieId).isEqualTo(databasePage("studio"));
+        assertThat(pages.get(4).movieDtos()).extracting(MovieDto::getMovieId).isEqualTo(databasePage("releaseYear"));
+    }
+
+    @Test
+    void localWritesAreOverlaidUntilTheNextRebuild() throws IOException {
+        MovieDto renamed = movieService.getMovie(ids.get(10));
+        renamed.setTitle("A remake");
+        movieService.updateMovie(ids.get(10), renamed, null, null);
+        movieService.deleteMovie(ids.get(20));
+
+        for (int pass = 0; pass < 2; pass++) {
+            MoviePageResponse firstByTitle = movieService.getAllMoviesWithPagination(0, 5, "title", "asc");
+            assertThat(firstByTitle.movieDtos().get(0).getMovieId()).isEqualTo(ids.get(10));
+            assertThat(firstByTitle.totalElements()).isEqualTo(MOVIE_COUNT - 1);
+            assertThat(movieService.getAllMovies()).extracting(MovieDto::getMovieId).doesNotContain(ids.get(20)).isSorted();
+            assertThatThrownBy(() -> movieService.getMovie(ids.get(20))).isInstanceOf(MovieNotFoundException.class);
+
+            //The rebuilt snapshot has the same answers on its own
+            movieCatalogue.refresh();
+            cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        }
+    }
+
+    @Test
+    void deepPagesWithAnOverlayMatchTheDatabase() throws IOException {
+        for (int i : List.of(4, 17, 33, 58)) {
+            MovieDto changed = movieService.getMovie(ids.get(i));
+            changed.setTitle("Title " + (i * 13 % MOVIE_COUNT) + " again");
+            changed.setReleaseYear(1950 + i % 4);
+            movieService.updateMovie(ids.get(i), changed, null, null);
+        }
+        movieService.deleteMovie(ids.get(0));
+        movieService.deleteMovie(ids.get(41));
+
+        for (String field : List.of("movieId", "title", "releaseYear")) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                Sort sort = Sort.by(direction, field).and(Sort.by(direction, "movieId"));
+                for (int pageNumber = 0; pageNumber * 7 < MOVIE_COUNT; pageNumber++) {
+                    List<Integer> database = movieRepository.findAllRows(PageRequest.of(pageNumber, 7, sort))
+                            .map(MovieRow::movieId).getContent();
+                    assertThat(movieCatalogue.page(pageNumber, 7, field, direction.isAscending()).getContent())
+                            .extracting(MovieRow::movieId)
+                            .as("%s %s page %d", field, direction, pageNumber)
+                            .isEqualTo(database);
+                }
+            }
+        }
+    }
+
+    @Test
+    void aLargeOverlayIsFoldedInWithoutWaitingForTheInterval() throws IOException {
+        ReflectionTestUtils.setField(movieCatalogue, "maxOverlay", 3);
+        try {
+            //Deleted behind the catalogue's back, so only a refresh can make it disappear
+            movieRepository.deleteById(ids.get(1));
+            for (int i : List.of(2, 3, 4)) {
+                movieService.deleteMovie(ids.get(i));
+            }
+
+            await().atMost(Duration.ofSeconds(30)).until(() -> movieCatalogue.find(ids.get(1)).isEmpty());
+            assertThat(movieCatalogue.count()).isEqualTo(MOVIE_COUNT - 4);
+        } finally {
+            ReflectionTestUtils.setField(movieCatalogue, "maxOverlay", 1000);
+        }
+    }
+
+    private List<Integer> databasePage(String field) {
+        Sort sort = Sort.by(Sort.Direction.DESC, field).and(Sort.by(Sort.Direction.DESC, "movieId"));
+        return movieRepository.findAllRows(PageRequest.of(1, 25, sort)).map(MovieRow::movieId).getContent();
+    }
+}